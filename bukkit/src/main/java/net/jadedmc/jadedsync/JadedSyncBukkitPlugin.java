@@ -27,13 +27,31 @@ package net.jadedmc.jadedsync;
 import net.jadedmc.jadedsync.api.JadedSyncAPI;
 import net.jadedmc.jadedsync.api.integration.IntegrationManager;
 import net.jadedmc.jadedsync.api.player.JadedSyncPlayerManager;
+import net.jadedmc.jadedsync.api.player.PlayerCache;
+import net.jadedmc.jadedsync.api.player.PlayerLocator;
+import net.jadedmc.jadedsync.api.player.PlayerPrefetcher;
+import net.jadedmc.jadedsync.api.player.PlayerSyncQueue;
 import net.jadedmc.jadedsync.api.server.InstanceMonitor;
+import net.jadedmc.jadedsync.api.server.InstanceRecords;
 import net.jadedmc.jadedsync.commands.AbstractCommand;
 import net.jadedmc.jadedsync.config.ConfigManager;
 import net.jadedmc.jadedsync.config.HookManager;
 import net.jadedmc.jadedsync.database.Redis;
+import net.jadedmc.jadedsync.database.RedisExecutor;
 import net.jadedmc.jadedsync.listeners.PlayerJoinListener;
+import net.jadedmc.jadedsync.listeners.PlayerPreLoginListener;
 import net.jadedmc.jadedsync.listeners.PlayerQuitListener;
+import net.jadedmc.jadedsync.messaging.Message;
+import net.jadedmc.jadedsync.messaging.MessageChannels;
+import net.jadedmc.jadedsync.messaging.MessageDispatcher;
+import net.jadedmc.jadedsync.messaging.MessageType;
+import net.jadedmc.jadedsync.messaging.handlers.ChatMessageHandler;
+import net.jadedmc.jadedsync.messaging.handlers.ConnectMessageHandler;
+import net.jadedmc.jadedsync.messaging.handlers.ExpireMessageHandler;
+import net.jadedmc.jadedsync.messaging.handlers.HeartbeatMessageHandler;
+import net.jadedmc.jadedsync.messaging.handlers.InstanceMessageHandler;
+import net.jadedmc.jadedsync.messaging.handlers.IntegrationMessageHandler;
+import net.jadedmc.jadedsync.messaging.handlers.InvalidateMessageHandler;
 import net.jadedmc.jadedsync.utils.gui.GUIListeners;
 import org.bstats.bukkit.Metrics;
 import org.bukkit.plugin.java.JavaPlugin;
@@ -44,7 +62,13 @@ public final class JadedSyncBukkitPlugin extends JavaPlugin {
     private InstanceMonitor instanceMonitor;
     private IntegrationManager integrationManager;
     private JadedSyncPlayerManager jadedSyncPlayerManager;
+    private MessageDispatcher messageDispatcher;
+    private PlayerCache playerCache;
+    private PlayerLocator playerLocator;
+    private PlayerPrefetcher playerPrefetcher;
+    private PlayerSyncQueue playerSyncQueue;
     private Redis redis;
+    private RedisExecutor redisExecutor;
 
     @Override
     public void onEnable() {
@@ -56,10 +80,32 @@ public final class JadedSyncBukkitPlugin extends JavaPlugin {
 
         configManager = new ConfigManager(this);
         hookManager = new HookManager(this);
+        redisExecutor = new RedisExecutor(this);
+
+        // Register pub/sub message handlers before subscribing.
+        messageDispatcher = new MessageDispatcher(this);
+        messageDispatcher.register(MessageType.CHAT, new ChatMessageHandler(this), false);
+        messageDispatcher.register(MessageType.CONNECT, new ConnectMessageHandler(this), true);
+        messageDispatcher.register(MessageType.INSTANCE, new InstanceMessageHandler(this), true);
+        messageDispatcher.register(MessageType.INTEGRATION, new IntegrationMessageHandler(this), false);
+        messageDispatcher.register(MessageType.INVALIDATE, new InvalidateMessageHandler(this), false);
+        messageDispatcher.register(MessageType.HEARTBEAT, new HeartbeatMessageHandler(this), false);
+        messageDispatcher.register(MessageType.EXPIRE, new ExpireMessageHandler(this), false);
+
         redis = new Redis(this);
+        playerCache = new PlayerCache(this);
+        playerLocator = new PlayerLocator(this);
+        playerPrefetcher = new PlayerPrefetcher(this);
+        playerSyncQueue = new PlayerSyncQueue(this);
         instanceMonitor = new InstanceMonitor(this);
 
+        // Only listen for pub/sub messages if Redis is set up.
+        if(redis.isSet()) {
+            redis.subscribe(instanceMonitor.getCurrentInstance());
+        }
+
         getServer().getPluginManager().registerEvents(new PlayerJoinListener(this), this);
+        getServer().getPluginManager().registerEvents(new PlayerPreLoginListener(this), this);
         getServer().getPluginManager().registerEvents(new PlayerQuitListener(this), this);
         getServer().getPluginManager().registerEvents(new GUIListeners(), this);
 
@@ -75,7 +121,27 @@ public final class JadedSyncBukkitPlugin extends JavaPlugin {
     @Override
     public void onDisable() {
         // Deletes the search from Redis
-        redis.del("jadedsync:servers:backend:" + this.instanceMonitor.getCurrentInstance().getName());
+        redis.del(InstanceRecords.key(this.instanceMonitor.getCurrentInstance().getName()));
+        redis.del(InstanceRecords.playersKey(this.instanceMonitor.getCurrentInstance().getName()));
+        redis.srem("jadedsync:index:servers", this.instanceMonitor.getCurrentInstance().getName());
+        for(final String tag : this.instanceMonitor.getCurrentInstance().getTags()) {
+            redis.srem(InstanceRecords.tagKey(tag), this.instanceMonitor.getCurrentInstance().getName());
+        }
+
+        // Tell the other servers and the proxy the instance is gone, instead of making them wait for it to expire.
+        redis.publish(MessageChannels.NETWORK, new Message(MessageType.EXPIRE, this.instanceMonitor.getCurrentInstance().getName()));
+
+        // Stop listening for pub/sub messages.
+        if(redis.getSubscriber() != null) {
+            redis.getSubscriber().stop();
+        }
+        messageDispatcher.shutdown();
+
+        // Write any player changes that have not been saved yet.
+        playerSyncQueue.flush();
+
+        // Let queued Redis tasks finish.
+        redisExecutor.shutdown();
     }
 
     public ConfigManager getConfigManager() {
@@ -98,7 +164,31 @@ public final class JadedSyncBukkitPlugin extends JavaPlugin {
         return this.jadedSyncPlayerManager;
     }
 
+    public MessageDispatcher getMessageDispatcher() {
+        return this.messageDispatcher;
+    }
+
+    public PlayerCache getPlayerCache() {
+        return playerCache;
+    }
+
+    public PlayerLocator getPlayerLocator() {
+        return this.playerLocator;
+    }
+
+    public PlayerPrefetcher getPlayerPrefetcher() {
+        return playerPrefetcher;
+    }
+
+    public PlayerSyncQueue getPlayerSyncQueue() {
+        return this.playerSyncQueue;
+    }
+
     public Redis getRedis() {
         return this.redis;
     }
+
+    public RedisExecutor getRedisExecutor() {
+        return this.redisExecutor;
+    }
 }
@@ -28,9 +28,14 @@ import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
 import net.jadedmc.jadedsync.api.integration.Integration;
 import net.jadedmc.jadedsync.api.player.JadedSyncPlayer;
 import net.jadedmc.jadedsync.api.player.JadedSyncPlayerMap;
+import net.jadedmc.jadedsync.api.player.PlayerRecords;
 import net.jadedmc.jadedsync.api.server.CurrentInstance;
 import net.jadedmc.jadedsync.api.server.ServerInstance;
 import net.jadedmc.jadedsync.database.Redis;
+import net.jadedmc.jadedsync.database.SingleFlight;
+import net.jadedmc.jadedsync.messaging.Message;
+import net.jadedmc.jadedsync.messaging.MessageChannels;
+import net.jadedmc.jadedsync.messaging.MessageType;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
@@ -40,6 +45,18 @@ import java.util.*;
 import java.util.concurrent.CompletableFuture;
 
 public class JadedSyncAPI {
+    /**
+     * Removes a username (ARGV[1]) from the username index, but only if it still points to the given UUID (ARGV[2]),
+     * so an entry updated in the meantime is kept.
+     */
+    private static final String REMOVE_NAME = """
+            if redis.call('HGET', KEYS[1], ARGV[1]) == ARGV[2] then
+                return redis.call('HDEL', KEYS[1], ARGV[1])
+            end
+            return 0
+            """;
+    private static final SingleFlight<UUID, JadedSyncPlayer> playerLookups = new SingleFlight<>();
+    private static final SingleFlight<String, JadedSyncPlayer> usernameLookups = new SingleFlight<>();
     private static JadedSyncBukkitPlugin plugin;
 
     /**
@@ -91,67 +108,197 @@ public class JadedSyncAPI {
             return localPlayer;
         }
 
-        // If not, check if the player is saved in Redis at all.
-        if(!hasPlayer(uuid)) {
-            return null;
+        // Then check if they were looked up recently.
+        final JadedSyncPlayer cachedPlayer = plugin.getPlayerCache().get(uuid);
+        if(cachedPlayer != null) {
+            return cachedPlayer;
         }
 
-        // If so, gets that player.
-        return new JadedSyncPlayer(plugin, plugin.getRedis().get("jadedsync:players:" + uuid));
+        // If not, load the player from Redis, if they are saved at all.
+        final long generation = plugin.getPlayerCache().getGeneration();
+        try(Jedis jedis = plugin.getRedis().getResource()) {
+            final JadedSyncPlayer player = PlayerRecords.load(plugin, jedis, uuid);
+
+            if(player != null) {
+                plugin.getPlayerCache().put(player, generation);
+            }
+
+            return player;
+        }
     }
 
+    /**
+     * Gets the JadedSyncPlayer of a player with the given username. Not case-sensitive.
+     * Looks the UUID up in the network-wide username index, so only one player is loaded.
+     * Index entries that no longer match the player's name are removed.
+     * <p><b>Warning: This is done on the thread this is called from. Should be used asynchronously.</b></p>
+     * @param username Username of the player to check.
+     * @return JadedSyncPlayer object. Null if does not exist.
+     */
     public static JadedSyncPlayer getPlayer(@NotNull final String username) {
-        final JadedSyncPlayerMap players = getPlayers();
-        return players.get(username);
+        // Check if a local copy of the player exists first.
+        final JadedSyncPlayer localPlayer = plugin.getJadedSyncPlayerManager().getPlayer(username);
+        if(localPlayer != null) {
+            return localPlayer;
+        }
+
+        // If not, find their UUID in the username index.
+        final String name = username.toLowerCase(Locale.ROOT);
+        final String uuid = plugin.getRedis().hget("jadedsync:index:names", name);
+        if(uuid == null) {
+            return null;
+        }
+
+        final JadedSyncPlayer player = getPlayer(UUID.fromString(uuid));
+
+        // The player has been renamed or removed since they were indexed, so the entry is stale.
+        if(player == null || !player.getName().equalsIgnoreCase(username)) {
+            try(Jedis jedis = plugin.getRedis().getResource()) {
+                jedis.eval(REMOVE_NAME, List.of("jadedsync:index:names"), List.of(name, uuid));
+            }
+
+            return null;
+        }
+
+        return player;
     }
 
+    /**
+     * Gets the Json data a single integration saved for a player, without loading the rest of the player.
+     * <p><b>Warning: This is done on the thread this is called from. Should be used asynchronously.</b></p>
+     * @param uuid UUID of the player.
+     * @param integration ID of the integration.
+     * @return Json data, or null if the player or integration data does not exist.
+     */
+    public static String getPlayerIntegration(@NotNull final UUID uuid, @NotNull final String integration) {
+        // Check if a local copy of the player exists first.
+        final JadedSyncPlayer localPlayer = plugin.getJadedSyncPlayerManager().getPlayer(uuid);
+        if(localPlayer != null) {
+            return localPlayer.getIntegration(integration);
+        }
+
+        try(Jedis jedis = plugin.getRedis().getResource()) {
+            return PlayerRecords.getField(jedis, List.of(uuid), JadedSyncPlayer.INTEGRATION_PREFIX + integration).get(uuid);
+        }
+    }
+
+    /**
+     * Gets the JadedSyncPlayer of a player with the given UUID, async.
+     * Concurrent lookups of the same player share a single request.
+     * @param uuid UUID of the player to check.
+     * @return CompletableFuture with the JadedSyncPlayer object. Null if does not exist.
+     */
     public static CompletableFuture<JadedSyncPlayer> getPlayerAsync(@NotNull final UUID uuid) {
-        return CompletableFuture.supplyAsync(() -> getPlayer(uuid));
+        return playerLookups.execute(uuid, () -> plugin.getRedisExecutor().supplyAsync(() -> getPlayer(uuid)));
     }
 
+    /**
+     * Gets the JadedSyncPlayer of a player with the given username, async. Not case-sensitive.
+     * Concurrent lookups of the same player share a single request.
+     * @param username Username of the player to check.
+     * @return CompletableFuture with the JadedSyncPlayer object. Null if does not exist.
+     */
     public static CompletableFuture<JadedSyncPlayer> getPlayerAsync(@NotNull final String username) {
-        return CompletableFuture.supplyAsync(() -> getPlayer(username));
+        return usernameLookups.execute(username.toLowerCase(Locale.ROOT), () -> plugin.getRedisExecutor().supplyAsync(() -> getPlayer(username)));
     }
 
+    /**
+     * Gets the JadedSyncPlayers of a group of players.
+     * Players on this server and recently looked up players are used directly, and the rest are loaded in a single pipeline.
+     * <p><b>Warning: This is done on the thread this is called from. Should be used asynchronously.</b></p>
+     * @param uuids UUIDs of the players to get.
+     * @return List of the players that exist, in the order they were given.
+     */
     public static List<JadedSyncPlayer> getPlayers(@NotNull final Collection<UUID> uuids) {
-        final List<JadedSyncPlayer> players = new ArrayList<>();
+        final Map<UUID, JadedSyncPlayer> found = new HashMap<>();
+        final List<UUID> remote = new ArrayList<>();
 
+        // Check for local copies of the players first.
         for(final UUID uuid : uuids) {
-            final JadedSyncPlayer player = getPlayer(uuid);
+            JadedSyncPlayer player = plugin.getJadedSyncPlayerManager().getPlayer(uuid);
 
-            // Skip the player if they do not exist.
             if(player == null) {
-                continue;
+                player = plugin.getPlayerCache().get(uuid);
+            }
+
+            if(player != null) {
+                found.put(uuid, player);
+            }
+            else {
+                remote.add(uuid);
+            }
+        }
+
+        // Load everyone else from Redis in one round trip.
+        if(!remote.isEmpty()) {
+            final long generation = plugin.getPlayerCache().getGeneration();
+
+            try(Jedis jedis = plugin.getRedis().getResource()) {
+                final Map<UUID, JadedSyncPlayer> loaded = PlayerRecords.load(plugin, jedis, remote);
+                loaded.values().forEach(player -> plugin.getPlayerCache().put(player, generation));
+                found.putAll(loaded);
             }
+        }
+
+        // Keep the order the players were requested in.
+        final List<JadedSyncPlayer> players = new ArrayList<>();
+        for(final UUID uuid : uuids) {
+            final JadedSyncPlayer player = found.get(uuid);
 
-            players.add(player);
+            if(player != null) {
+                players.add(player);
+            }
         }
 
         return players;
     }
 
+    /**
+     * Gets all players currently saved in Redis.
+     * Reads the player index set, then loads every player in a single pipeline.
+     * <p><b>Warning: This is done on the thread this is called from. Should be used asynchronously.</b></p>
+     * @return All players on the network.
+     */
     public static JadedSyncPlayerMap getPlayers() {
         final JadedSyncPlayerMap players = new JadedSyncPlayerMap();
 
-        try(Jedis jedis = plugin.getRedis().jedisPool().getResource()) {
-            final Set<String> keys = jedis.keys("jadedsync:players:*");
+        try(Jedis jedis = plugin.getRedis().getResource()) {
+            final List<String> uuids = new ArrayList<>(jedis.smembers("jadedsync:index:players"));
+
+            // Exit if there are no players to load.
+            if(uuids.isEmpty()) {
+                return players;
+            }
+
+            final Map<UUID, JadedSyncPlayer> loaded = PlayerRecords.load(plugin, jedis, uuids.stream().map(UUID::fromString).toList());
+            final List<String> stale = new ArrayList<>();
+
+            for(final String uuid : uuids) {
+                final JadedSyncPlayer player = loaded.get(UUID.fromString(uuid));
+
+                // Remember players whose data no longer exists, so they can be removed from the index.
+                if(player == null) {
+                    stale.add(uuid);
+                    continue;
+                }
 
-            for(@NotNull final String key : keys) {
-                final String json = jedis.get(key);
-                final JadedSyncPlayer player = new JadedSyncPlayer(plugin, json);
                 players.put(player.getUniqueId(), player);
             }
+
+            if(!stale.isEmpty()) {
+                jedis.srem("jadedsync:index:players", stale.toArray(String[]::new));
+            }
         }
 
         return players;
     }
 
     public static CompletableFuture<List<JadedSyncPlayer>> getPlayersAsync(@NotNull final Collection<UUID> uuids) {
-        return CompletableFuture.supplyAsync(() -> getPlayers(uuids));
+        return plugin.getRedisExecutor().supplyAsync(() -> getPlayers(uuids));
     }
 
     public static CompletableFuture<JadedSyncPlayerMap> getPlayersAsync() {
-        return CompletableFuture.supplyAsync(JadedSyncAPI::getPlayers);
+        return plugin.getRedisExecutor().supplyAsync(JadedSyncAPI::getPlayers);
     }
 
     /**
@@ -165,7 +312,7 @@ public class JadedSyncAPI {
     }
 
     public static CompletableFuture<Boolean> hasPlayerAsync(@NotNull final UUID uuid) {
-        return CompletableFuture.supplyAsync(() -> hasPlayer(uuid));
+        return plugin.getRedisExecutor().supplyAsync(() -> hasPlayer(uuid));
     }
 
     public static void registerIntegration(@NotNull final Integration integration) {
@@ -174,7 +321,6 @@ public class JadedSyncAPI {
 
     /**
      * Gets a collection of all currently cached server instances.
-     * <p><b>Warning: This is done on the thread this is called from. Should be used asynchronously.</b></p>
      * @return All current server instances.
      */
     public static Collection<ServerInstance> getInstances() {
@@ -186,12 +332,12 @@ public class JadedSyncAPI {
      * @return All current server instances.
      */
     public static CompletableFuture<Collection<ServerInstance>> getInstancesAsync() {
-        return CompletableFuture.supplyAsync(JadedSyncAPI::getInstances);
+        return plugin.getRedisExecutor().supplyAsync(JadedSyncAPI::getInstances);
     }
 
     /**
      * Get the current player count across all linked servers.
-     * <p>Updated every 30 seconds.</p>
+     * <p>Kept up to date by each server's heartbeat, so it can be a few seconds behind.</p>
      * @return Current cached player count.
      */
     public static int getPlayerCount() {
@@ -200,155 +346,236 @@ public class JadedSyncAPI {
 
     /**
      * Sends a chat message to a given player over the network, if they are online.
+     * <p>Only the server the player is on receives the message.</p>
      * <p>You can use a comma to add multiple UUIDs.</p>
      * @param uuid UUID (as a String) of the player to send the chat message to.
      * @param message Chat message to be sent. Supports MiniMessage and Legacy.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void sendMessage(@NotNull final String uuid, @NotNull final String message) {
-        plugin.getRedis().publishAsync("jadedsync", "message " + uuid + " " + message);
+    public static CompletableFuture<Void> sendMessage(@NotNull final String uuid, @NotNull final String message) {
+        final List<UUID> uuids;
+        try {
+            uuids = parseUUIDs(uuid);
+        }
+        catch(IllegalArgumentException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+
+        return sendMessage(uuids, message);
     }
 
     /**
      * Sends a chat message to a given player over the network, if they are online.
      * @param uuid UUID of the player to send the chat message to.
      * @param message Chat message to be sent. Supports MiniMessage and Legacy.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void sendMessage(@NotNull final UUID uuid, @NotNull final String message) {
-        sendMessage(uuid.toString(), message);
+    public static CompletableFuture<Void> sendMessage(@NotNull final UUID uuid, @NotNull final String message) {
+        return sendMessage(List.of(uuid), message);
     }
 
     /**
      * Sends a chat message to a given player over the network, if they are online.
      * @param jadedSyncPlayer JadedSyncPlayer to send the chat message to.
      * @param message Chat message to be sent. Supports MiniMessage and Legacy.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void sendMessage(@NotNull final JadedSyncPlayer jadedSyncPlayer, @NotNull final String message) {
-        sendMessage(jadedSyncPlayer.getUniqueId(), message);
+    public static CompletableFuture<Void> sendMessage(@NotNull final JadedSyncPlayer jadedSyncPlayer, @NotNull final String message) {
+        return sendMessage(jadedSyncPlayer.getUniqueId(), message);
     }
 
     /**
      * Sends a chat message to a given player over the network, if they are online.
      * @param offlinePlayer OfflinePlayer to send the chat message to.
      * @param message Chat message to be sent. Supports MiniMessage and Legacy.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void sendMessage(@NotNull final OfflinePlayer offlinePlayer, @NotNull final String message) {
-        sendMessage(offlinePlayer.getUniqueId(), message);
+    public static CompletableFuture<Void> sendMessage(@NotNull final OfflinePlayer offlinePlayer, @NotNull final String message) {
+        return sendMessage(offlinePlayer.getUniqueId(), message);
     }
 
     /**
      * Sends a chat message to a group of players over the network, if they are online.
+     * <p>Players are grouped by the server they are on, and each of those servers receives a single message.</p>
      * @param uuids UUIDs of the players to send the chat message to.
      * @param message Chat message to be sent. Supports MiniMessage and Legacy.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void sendMessage(@NotNull final Collection<UUID> uuids, @NotNull final String message) {
-        final StringBuilder builder = new StringBuilder();
-        uuids.forEach(uuid -> builder.append(uuid.toString()).append(','));
+    public static CompletableFuture<Void> sendMessage(@NotNull final Collection<UUID> uuids, @NotNull final String message) {
+        if(uuids.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return send(() -> {
+            final String currentServer = plugin.getInstanceMonitor().getCurrentInstance().getName();
+
+            // Send one message to each server hosting at least one of the players.
+            plugin.getPlayerLocator().locate(uuids, true).forEach((server, players) -> {
+                final Message chat = new Message(MessageType.CHAT, players, message, "0");
 
-        sendMessage(builder.substring(0, builder.length() - 1), message);
+                // Players on this server don't need to go through Redis.
+                if(server.equals(currentServer)) {
+                    plugin.getMessageDispatcher().dispatch(chat);
+                }
+                else {
+                    plugin.getRedis().publish(MessageChannels.server(server), chat);
+                }
+            });
+        });
     }
 
     /**
      * Sends the given player to the given server, from anywhere in the network.
      * @param uuid UUID of the player to change server of.
      * @param serverName Name of the server to change to.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void sendToServer(@NotNull final String uuid, @NotNull final String serverName) {
-        plugin.getRedis().publishAsync("jadedsync", "connect " + uuid + " " + serverName);
+    public static CompletableFuture<Void> sendToServer(@NotNull final String uuid, @NotNull final String serverName) {
+        final List<UUID> uuids;
+        try {
+            uuids = parseUUIDs(uuid);
+        }
+        catch(IllegalArgumentException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+
+        return sendToServer(uuids, serverName);
+    }
+
+    /**
+     * Sends a group of players to the given server, from anywhere in the network.
+     * <p>The message is only published to the servers the players are currently on.</p>
+     * @param uuids UUIDs of the players to change server of.
+     * @param serverName Name of the server to change to.
+     * @return CompletableFuture that completes once the message is sent.
+     */
+    public static CompletableFuture<Void> sendToServer(@NotNull final Collection<UUID> uuids, @NotNull final String serverName) {
+        if(uuids.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return send(() -> {
+            final String currentServer = plugin.getInstanceMonitor().getCurrentInstance().getName();
+
+            // Send one message to each server hosting at least one of the players.
+            plugin.getPlayerLocator().locate(uuids, true).forEach((server, players) -> {
+                final Message connect = new Message(MessageType.CONNECT, players, serverName);
+
+                // Players on this server don't need to go through Redis.
+                if(server.equals(currentServer)) {
+                    plugin.getMessageDispatcher().dispatch(connect);
+                }
+                else {
+                    plugin.getRedis().publish(MessageChannels.server(server), connect);
+                }
+            });
+        });
     }
 
     /**
      * Sends the given player to the given server, from anywhere in the network.
      * @param uuid UUID of the player to change server of.
      * @param serverInstance Server to change to.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void sendToServer(@NotNull final String uuid, @NotNull final ServerInstance serverInstance) {
-        sendToServer(uuid, serverInstance.getName());
+    public static CompletableFuture<Void> sendToServer(@NotNull final String uuid, @NotNull final ServerInstance serverInstance) {
+        return sendToServer(uuid, serverInstance.getName());
     }
 
     /**
      * Sends the given player to the given server, from anywhere in the network.
      * @param uuid UUID of the player to change server of.
      * @param serverName Name of the server to change to.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void sendToServer(@NotNull final UUID uuid, @NotNull final String serverName) {
-        sendToServer(uuid.toString(), serverName);
+    public static CompletableFuture<Void> sendToServer(@NotNull final UUID uuid, @NotNull final String serverName) {
+        return sendToServer(uuid.toString(), serverName);
     }
 
     /**
      * Sends the given player to the given server, from anywhere in the network.
      * @param uuid UUID of the player to change server of.
      * @param serverInstance Server to change to.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void sendToServer(@NotNull final UUID uuid, @NotNull final ServerInstance serverInstance) {
-        sendToServer(uuid.toString(), serverInstance);
+    public static CompletableFuture<Void> sendToServer(@NotNull final UUID uuid, @NotNull final ServerInstance serverInstance) {
+        return sendToServer(uuid.toString(), serverInstance);
     }
 
     /**
      * Sends the given player to the given server, from anywhere in the network.
      * @param jadedSyncPlayer Player to change server of.
      * @param serverName Name of the server to change to.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void sendToServer(@NotNull final JadedSyncPlayer jadedSyncPlayer, @NotNull final String serverName) {
-        sendToServer(jadedSyncPlayer.getUniqueId(), serverName);
+    public static CompletableFuture<Void> sendToServer(@NotNull final JadedSyncPlayer jadedSyncPlayer, @NotNull final String serverName) {
+        return sendToServer(jadedSyncPlayer.getUniqueId(), serverName);
     }
 
     /**
      * Sends the given player to the given server, from anywhere in the network.
      * @param jadedSyncPlayer Player to change server of.
      * @param serverInstance Server to change to.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void sendToServer(@NotNull final JadedSyncPlayer jadedSyncPlayer, @NotNull final ServerInstance serverInstance) {
-        sendToServer(jadedSyncPlayer.getUniqueId(), serverInstance);
+    public static CompletableFuture<Void> sendToServer(@NotNull final JadedSyncPlayer jadedSyncPlayer, @NotNull final ServerInstance serverInstance) {
+        return sendToServer(jadedSyncPlayer.getUniqueId(), serverInstance);
     }
 
     /**
      * Sends the given player to the given server, from anywhere in the network.
      * @param offlinePlayer Player to change server of.
      * @param serverName Name of the server to change to.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void sendToServer(@NotNull final OfflinePlayer offlinePlayer, @NotNull final String serverName) {
-        sendToServer(offlinePlayer.getUniqueId(), serverName);
+    public static CompletableFuture<Void> sendToServer(@NotNull final OfflinePlayer offlinePlayer, @NotNull final String serverName) {
+        return sendToServer(offlinePlayer.getUniqueId(), serverName);
     }
 
     /**
      * Sends the given player to the given server, from anywhere in the network.
      * @param offlinePlayer Player to change server of.
      * @param serverInstance Server to change to.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void sendToServer(@NotNull final OfflinePlayer offlinePlayer, @NotNull final ServerInstance serverInstance) {
-        sendToServer(offlinePlayer.getUniqueId(), serverInstance);
+    public static CompletableFuture<Void> sendToServer(@NotNull final OfflinePlayer offlinePlayer, @NotNull final ServerInstance serverInstance) {
+        return sendToServer(offlinePlayer.getUniqueId(), serverInstance);
     }
 
     /**
      * Sends a given player to the current server.
      * @param uuid UUID of the player to summon.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void summonPlayer(@NotNull final String uuid) {
-        sendToServer(uuid, plugin.getInstanceMonitor().getCurrentInstance().getName());
+    public static CompletableFuture<Void> summonPlayer(@NotNull final String uuid) {
+        return sendToServer(uuid, plugin.getInstanceMonitor().getCurrentInstance().getName());
     }
 
     /**
      * Sends a player to the current server.
      * @param uuid UUID of the player to summon.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void summonPlayer(@NotNull final UUID uuid) {
-        summonPlayer(uuid.toString());
+    public static CompletableFuture<Void> summonPlayer(@NotNull final UUID uuid) {
+        return summonPlayer(uuid.toString());
     }
 
     /**
      * Sends a player to the current server.
      * @param offlinePlayer Player to summon.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void summonPlayer(@NotNull final OfflinePlayer offlinePlayer) {
-        summonPlayer(offlinePlayer.getUniqueId());
+    public static CompletableFuture<Void> summonPlayer(@NotNull final OfflinePlayer offlinePlayer) {
+        return summonPlayer(offlinePlayer.getUniqueId());
     }
 
     /**
      * Sends a group of players to the current server.
      * @param uuids UUIDs of the players to summon.
+     * @return CompletableFuture that completes once the message is sent.
      */
-    public static void summonPlayers(@NotNull final Collection<UUID> uuids) {
-        uuids.forEach(JadedSyncAPI::summonPlayer);
+    public static CompletableFuture<Void> summonPlayers(@NotNull final Collection<UUID> uuids) {
+        return sendToServer(uuids, plugin.getInstanceMonitor().getCurrentInstance().getName());
     }
 
     /**
@@ -365,4 +592,34 @@ public class JadedSyncAPI {
         jadedSyncPlayer.updateIntegrations();
         jadedSyncPlayer.syncData();
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs a send task on the Redis executor.
+     * Failures are logged to the console, and also fail the returned future.
+     * @param task Task that sends the message.
+     * @return CompletableFuture that completes once the task is done.
+     */
+    private static CompletableFuture<Void> send(@NotNull final Runnable task) {
+        return plugin.getRedisExecutor().runAsync(task).whenComplete((result, exception) -> {
+            if(exception != null) {
+                exception.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Parses a comma separated list of UUIDs, as accepted by the String based methods.
+     * @param uuids UUIDs, separated by commas.
+     * @return Parsed UUIDs.
+     * @throws IllegalArgumentException If one of the UUIDs is malformed.
+     */
+    private static List<UUID> parseUUIDs(@NotNull final String uuids) {
+        final List<UUID> parsed = new ArrayList<>();
+
+        for(final String uuid : uuids.split(",")) {
+            parsed.add(UUID.fromString(uuid.trim()));
+        }
+
+        return parsed;
+    }
+}
@@ -27,6 +27,10 @@ package net.jadedmc.jadedsync.api.integration;
 import net.jadedmc.jadedsync.api.JadedSyncAPI;
 import net.jadedmc.jadedsync.api.player.JadedSyncPlayer;
 import net.jadedmc.jadedsync.api.server.CurrentInstance;
+import net.jadedmc.jadedsync.messaging.Message;
+import net.jadedmc.jadedsync.messaging.MessageChannels;
+import net.jadedmc.jadedsync.messaging.MessageType;
+import org.bson.Document;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -60,11 +64,46 @@ public abstract class Integration {
 
     /**
      * Updates the data being stored by the ServerInstance.
+     * Called off the main thread during heartbeats, so it must not use Bukkit APIs that are not thread safe.
      * @param serverInstance Server to update the data of.
      * @return Updated data in JSON.
      */
     public abstract String getServerIntegration(@NotNull final CurrentInstance serverInstance);
 
+    /**
+     * Updates the data being stored by the JadedSyncPlayer, as a BSON document.
+     * Override this to skip converting the data to Json and back.
+     * @param player Player to update the data of.
+     * @return Updated data.
+     */
+    public Document getPlayerDocument(@NotNull final JadedSyncPlayer player) {
+        return parse(getPlayerIntegration(player));
+    }
+
+    /**
+     * Updates the data being stored by the ServerInstance, as a BSON document.
+     * Override this to skip converting the data to Json and back.
+     * @param serverInstance Server to update the data of.
+     * @return Updated data.
+     */
+    public Document getServerDocument(@NotNull final CurrentInstance serverInstance) {
+        return parse(getServerIntegration(serverInstance));
+    }
+
+    /**
+     * Resolves a conflict between this server's data for a player and data another server saved first.
+     * Called when saving a player fails because their record changed since it was loaded,
+     * but only if this server also changed the integration's data since then. Otherwise the saved data is used as-is.
+     * By default the data on this server wins, since it holds the latest change.
+     * @param player Player being saved.
+     * @param local Data from this server.
+     * @param remote Data currently saved in Redis, empty if there is none.
+     * @return Data to save.
+     */
+    public Document resolveConflict(@NotNull final JadedSyncPlayer player, @NotNull final Document local, @NotNull final Document remote) {
+        return local;
+    }
+
     /**
      * Called when the integration receives a message from Redis pub/sub.
      * @param message Message being received.
@@ -78,10 +117,41 @@ public abstract class Integration {
     public void onPlayerJoin(@NotNull final JadedSyncPlayer player) {}
 
     /**
-     * Publishes a message through Redis pub/sub.
+     * Publishes a message through Redis pub/sub, to every server in the network.
      * @param message Message to be published.
      */
     public final void publish(@NotNull final String message) {
-        JadedSyncAPI.getRedis().publish("jadedsync", "integration " + this.id + " " + message);
+        JadedSyncAPI.getRedis().publish(MessageChannels.NETWORK, new Message(MessageType.INTEGRATION, this.id, message));
+    }
+
+    /**
+     * Publishes a message through Redis pub/sub, to a single server.
+     * @param server Name of the server to send the message to.
+     * @param message Message to be published.
+     */
+    public final void publishToServer(@NotNull final String server, @NotNull final String message) {
+        JadedSyncAPI.getRedis().publish(MessageChannels.server(server), new Message(MessageType.INTEGRATION, this.id, message));
+    }
+
+    /**
+     * Publishes a message through Redis pub/sub, to every server with a given tag.
+     * @param tag Tag of the servers to send the message to.
+     * @param message Message to be published.
+     */
+    public final void publishToTag(@NotNull final String tag, @NotNull final String message) {
+        JadedSyncAPI.getRedis().publish(MessageChannels.tag(tag), new Message(MessageType.INTEGRATION, this.id, message));
+    }
+
+    /**
+     * Parses the Json data returned by an integration.
+     * @param json Json data, which may be null or empty.
+     * @return Parsed document, empty if there was no data.
+     */
+    private static Document parse(final String json) {
+        if(json == null || json.isEmpty()) {
+            return new Document();
+        }
+
+        return Document.parse(json);
     }
-}
\ No newline at end of file
+}
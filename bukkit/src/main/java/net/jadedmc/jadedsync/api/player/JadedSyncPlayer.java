@@ -28,26 +28,42 @@ import com.destroystokyo.paper.profile.ProfileProperty;
 import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
 import net.jadedmc.jadedsync.api.JadedSyncAPI;
 import net.jadedmc.jadedsync.api.integration.Integration;
+import net.jadedmc.jadedsync.database.RecordFormat;
 import org.bson.Document;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Represents a player being synced across the network.
- * Data is stored in Redis
+ * Data is stored in Redis, as a hash with one field per attribute and one "integration:&lt;id&gt;" field per integration.
+ * Integration data is encoded with the configured RecordFormat.
  */
 public class JadedSyncPlayer {
+    public static final String INTEGRATION_PREFIX = "integration:";
+    private static final Document EMPTY = new Document();
     private final JadedSyncBukkitPlugin plugin;
     private final UUID uuid;
     private final String name;
     private String skin = "";
-    private final Map<String, String> integrations = new HashMap<>();
+    private final Map<String, Document> integrations = new ConcurrentHashMap<>();
+    private volatile Map<String, byte[]> encodedIntegrations = null;
     private final long joinedTime;
-    private final String server;
+    private volatile String server;
+    private volatile long version = 0;
+
+    // Integrations changed on this server since the record was last loaded or written, mapped to when they changed.
+    private final Map<String, Long> changes = new ConcurrentHashMap<>();
+    private final AtomicLong changeCounter = new AtomicLong();
 
     /**
      * Creates a JadedSyncPlayer from a Bukkit Player object.
@@ -92,8 +108,57 @@ public class JadedSyncPlayer {
 
         final Document integrationsDocument = document.get("integrations", Document.class);
         for(final String integration : integrationsDocument.keySet()) {
-            this.integrations.put(integration, integrationsDocument.get(integration, Document.class).toJson());
+            this.integrations.put(integration, integrationsDocument.get(integration, Document.class));
+        }
+    }
+
+    /**
+     * Creates a JadedSyncPlayer from the fields of its Redis hash.
+     * Used when loading a player from Redis.
+     * @param plugin Instance of the plugin.
+     * @param fields Fields that make up the player.
+     */
+    public JadedSyncPlayer(@NotNull final JadedSyncBukkitPlugin plugin, @NotNull final Map<String, String> fields) {
+        this(plugin, fields, encodeIntegrations(fields));
+    }
+
+    /**
+     * Creates a JadedSyncPlayer from the fields of its Redis hash, with integration data kept in its stored format.
+     * Used when loading a player from Redis.
+     * @param plugin Instance of the plugin.
+     * @param fields Fields that make up the player. Integration fields are ignored.
+     * @param integrations Encoded data of each integration, in any RecordFormat.
+     */
+    JadedSyncPlayer(@NotNull final JadedSyncBukkitPlugin plugin, @NotNull final Map<String, String> fields, @NotNull final Map<String, byte[]> integrations) {
+        this.plugin = plugin;
+        this.uuid = UUID.fromString(fields.get("uuid"));
+        this.name = fields.get("name");
+        this.skin = fields.getOrDefault("skin", "");
+        this.joinedTime = Long.parseLong(fields.getOrDefault("joinedTime", "0"));
+        this.server = fields.get("server");
+        this.version = Long.parseLong(fields.getOrDefault("version", "0"));
+
+        // Integration data is kept encoded until it is first accessed.
+        if(!integrations.isEmpty()) {
+            this.encodedIntegrations = new HashMap<>(integrations);
+        }
+    }
+
+    /**
+     * Gets the integration data from string hash fields, such as ones saved as Json.
+     * @param fields Fields that make up the player.
+     * @return Map of integration ids to their encoded data.
+     */
+    private static Map<String, byte[]> encodeIntegrations(@NotNull final Map<String, String> fields) {
+        final Map<String, byte[]> encoded = new HashMap<>();
+
+        for(final Map.Entry<String, String> field : fields.entrySet()) {
+            if(field.getKey().startsWith(INTEGRATION_PREFIX)) {
+                encoded.put(field.getKey().substring(INTEGRATION_PREFIX.length()), field.getValue().getBytes(StandardCharsets.UTF_8));
+            }
         }
+
+        return encoded;
     }
 
     /**
@@ -101,7 +166,12 @@ public class JadedSyncPlayer {
      * @param integration ID of the integration to delete.
      */
     public void deleteIntegration(@NotNull final String integration) {
-        this.integrations.remove(integration);
+        if(this.integrations().remove(integration) != null) {
+            this.markChanged(integration);
+        }
+
+        // Remove only the integration's own field from Redis.
+        plugin.getPlayerSyncQueue().markDirty(this, integration);
     }
 
     /**
@@ -110,13 +180,35 @@ public class JadedSyncPlayer {
      * @return Json data.
      */
     public String getIntegration(@NotNull final String integration) {
-        if(this.integrations.containsKey(integration)) {
-            return this.integrations.get(integration);
+        if(this.integrations().containsKey(integration)) {
+            return this.integrations().get(integration).toJson();
         }
 
         return "{}";
     }
 
+    /**
+     * Gets the data being cached by a given integration, as a BSON document.
+     * The returned document should not be modified.
+     * @param integration Integration to get the data of.
+     * @return Integration data, empty if there is none.
+     */
+    public Document getIntegrationDocument(@NotNull final String integration) {
+        return this.integrations().getOrDefault(integration, EMPTY);
+    }
+
+    /**
+     * Gets a single value from the data being cached by a given integration.
+     * @param integration Integration to get the data of.
+     * @param key Key of the value.
+     * @param defaultValue Value to return if the integration or key does not exist.
+     * @return The value, or the default value.
+     * @param <T> Type of the value.
+     */
+    public <T> T getIntegrationValue(@NotNull final String integration, @NotNull final String key, @NotNull final T defaultValue) {
+        return getIntegrationDocument(integration).get(key, defaultValue);
+    }
+
     /**
      * Get the time (in ms since epoch) that the player joined the network.
      * @return Time the player joined.
@@ -143,11 +235,54 @@ public class JadedSyncPlayer {
 
     /**
      * Syncs the player's data to Redis.
+     * The write is queued, so several changes in a short period of time are combined into one write.
      */
     public void syncData() {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            plugin.getRedis().set("jadedsync:players:" + this.uuid.toString(), this.toJson());
-        });
+        plugin.getPlayerSyncQueue().markDirty(this);
+    }
+
+    /**
+     * Gets the fields of the player's Redis hash.
+     * Integrations with no data are left out.
+     * @param format Format to encode integration data with.
+     * @return Map of field names to values.
+     */
+    public Map<String, byte[]> toFields(@NotNull final RecordFormat format) {
+        final Map<String, byte[]> fields = new HashMap<>();
+        fields.put("uuid", this.uuid.toString().getBytes(StandardCharsets.UTF_8));
+        fields.put("name", this.name.getBytes(StandardCharsets.UTF_8));
+        fields.put("skin", this.skin.getBytes(StandardCharsets.UTF_8));
+        fields.put("joinedTime", String.valueOf(this.joinedTime).getBytes(StandardCharsets.UTF_8));
+        fields.put("server", this.server.getBytes(StandardCharsets.UTF_8));
+
+        for(final Map.Entry<String, Document> integration : this.integrations().entrySet()) {
+            // Skip integrations that are empty.
+            if(integration.getValue().isEmpty()) {
+                continue;
+            }
+
+            fields.put(INTEGRATION_PREFIX + integration.getKey(), format.encode(integration.getValue()));
+        }
+
+        return fields;
+    }
+
+    /**
+     * Gets the hash fields of only some of the player's integrations.
+     * Used for partial writes, so integrations that did not change are not encoded.
+     * @param integrations IDs of the integrations.
+     * @param format Format to encode integration data with.
+     * @return Map of field names to values. Integrations with no data have an empty value, so their field is removed.
+     */
+    Map<String, byte[]> toIntegrationFields(@NotNull final Collection<String> integrations, @NotNull final RecordFormat format) {
+        final Map<String, byte[]> fields = new HashMap<>();
+
+        for(final String integration : integrations) {
+            final Document data = this.integrations().get(integration);
+            fields.put(INTEGRATION_PREFIX + integration, data == null || data.isEmpty() ? new byte[0] : format.encode(data));
+        }
+
+        return fields;
     }
 
     /**
@@ -165,16 +300,13 @@ public class JadedSyncPlayer {
         final Document integrationsDocument = new Document();
 
         // Get data saved from the integration.
-        for(final String integration : this.integrations.keySet()) {
-            final String json = this.integrations.get(integration);
-
+        for(final Map.Entry<String, Document> integration : this.integrations().entrySet()) {
             // Skip integrations that are empty.
-            if(json == null || json.isEmpty()) {
+            if(integration.getValue().isEmpty()) {
                 continue;
             }
 
-            final Document integrationDocument = Document.parse(json);
-            integrationsDocument.append(integration, integrationDocument);
+            integrationsDocument.append(integration.getKey(), integration.getValue());
         }
 
         document.append("integrations", integrationsDocument);
@@ -191,6 +323,59 @@ public class JadedSyncPlayer {
         return this.server;
     }
 
+    /**
+     * Changes the server the player is on.
+     * Used when a player joins this server, as their loaded record still points at the server they came from.
+     * @param server Name of the server.
+     */
+    public void setServer(@NotNull final String server) {
+        this.server = server;
+    }
+
+    /**
+     * Gets the version of the player's record this copy is based on.
+     * Every write to the record increases its version.
+     * @return Record version, 0 if it has never been saved.
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Updates the version of the record this copy is based on, after a successful write.
+     * @param version New record version.
+     */
+    void setVersion(final long version) {
+        this.version = version;
+    }
+
+    /**
+     * Merges a newer copy of the player, saved by another server, into this one.
+     * Core fields on this server are kept. Integrations that were not changed on this server take the saved data,
+     * and the ones that were resolve their own conflict.
+     * @param remote Copy of the player currently saved in Redis.
+     */
+    void merge(@NotNull final JadedSyncPlayer remote) {
+        for(final Integration integration : plugin.getIntegrationManager().getIntegrations()) {
+            final Document local = this.integrations().getOrDefault(integration.getId(), EMPTY);
+            final Document saved = remote.integrations().getOrDefault(integration.getId(), EMPTY);
+
+            if(local.equals(saved)) {
+                continue;
+            }
+
+            // This server's copy is just older, so the saved data is newer.
+            if(!this.changes.containsKey(integration.getId())) {
+                this.integrations().put(integration.getId(), saved);
+                continue;
+            }
+
+            this.integrations().put(integration.getId(), Objects.requireNonNullElse(integration.resolveConflict(this, local, saved), EMPTY));
+        }
+
+        this.version = remote.version;
+    }
+
     /**
      * Get the base64 encoding of the player's skin.
      * Useful for displaying player heads cross-server.
@@ -219,7 +404,10 @@ public class JadedSyncPlayer {
         }
 
         // Updates the data saved by the integration.
-        this.integrations.put(integration, plugin.getIntegrationManager().getIntegration(integration).getPlayerIntegration(this));
+        this.setIntegration(integration, Objects.requireNonNullElse(plugin.getIntegrationManager().getIntegration(integration).getPlayerDocument(this), EMPTY));
+
+        // Write only the integration's own field to Redis.
+        plugin.getPlayerSyncQueue().markDirty(this, integration);
     }
 
     /**
@@ -227,7 +415,75 @@ public class JadedSyncPlayer {
      */
     public void updateIntegrations() {
         for(@NotNull final Integration integration : plugin.getIntegrationManager().getIntegrations()) {
-            this.integrations.put(integration.getId(), integration.getPlayerIntegration(this));
+            this.setIntegration(integration.getId(), Objects.requireNonNullElse(integration.getPlayerDocument(this), EMPTY));
+        }
+    }
+
+    /**
+     * Stores an integration's data, remembering it was changed on this server if it is different from before.
+     * @param integration ID of the integration.
+     * @param data New data of the integration.
+     */
+    private void setIntegration(@NotNull final String integration, @NotNull final Document data) {
+        final Document previous = this.integrations().put(integration, data);
+
+        if(!data.equals(Objects.requireNonNullElse(previous, EMPTY))) {
+            this.markChanged(integration);
+        }
+    }
+
+    /**
+     * Remembers that an integration was changed on this server.
+     * @param integration ID of the integration.
+     */
+    private void markChanged(@NotNull final String integration) {
+        this.changes.put(integration, this.changeCounter.incrementAndGet());
+    }
+
+    /**
+     * Gets a marker for the changes made so far, taken before the player is written.
+     * @return Change marker.
+     */
+    long getChangeMark() {
+        return this.changeCounter.get();
+    }
+
+    /**
+     * Forgets integration changes that have been written to Redis.
+     * Changes made after the marker was taken are kept, since they were not part of the write.
+     * @param integrations IDs of the integrations that were written.
+     * @param mark Marker taken before the write.
+     */
+    void clearChanges(@NotNull final Collection<String> integrations, final long mark) {
+        for(final String integration : integrations) {
+            this.changes.computeIfPresent(integration, (id, changed) -> changed <= mark ? null : changed);
+        }
+    }
+
+    /**
+     * Forgets every integration change that has been written to Redis.
+     * @param mark Marker taken before the write.
+     */
+    void clearChanges(final long mark) {
+        this.clearChanges(List.copyOf(this.changes.keySet()), mark);
+    }
+
+    /**
+     * Gets the integration data of the player, decoding any data loaded from Redis the first time it is needed.
+     * @return Map of integration ids to their data.
+     */
+    private Map<String, Document> integrations() {
+        if(this.encodedIntegrations != null) {
+            synchronized(this) {
+                final Map<String, byte[]> encoded = this.encodedIntegrations;
+
+                if(encoded != null) {
+                    encoded.forEach((integration, data) -> this.integrations.putIfAbsent(integration, RecordFormat.decode(data)));
+                    this.encodedIntegrations = null;
+                }
+            }
         }
+
+        return this.integrations;
     }
-}
\ No newline at end of file
+}
@@ -26,23 +26,55 @@ package net.jadedmc.jadedsync.api.player;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.UUID;
 
+/**
+ * Keeps track of the JadedSyncPlayers that are online on this server.
+ * Players are added and removed on the main thread, but can be read from any thread.
+ */
 public class JadedSyncPlayerManager {
     private final JadedSyncPlayerMap players = new JadedSyncPlayerMap();
 
+    /**
+     * Caches a player that is online on this server.
+     * @param player Player to cache.
+     */
     public void addPlayer(@NotNull final JadedSyncPlayer player) {
         this.players.put(player.getUniqueId(), player);
     }
 
+    /**
+     * Gets a cached player from their UUID.
+     * @param uuid UUID of the player.
+     * @return The player, or null if they are not online on this server.
+     */
     public JadedSyncPlayer getPlayer(@NotNull final UUID uuid) {
-        if(this.players.contains(uuid)) {
-            return this.players.get(uuid);
-        }
+        return this.players.get(uuid);
+    }
+
+    /**
+     * Gets a cached player from their username, ignoring case.
+     * @param username Username of the player.
+     * @return The player, or null if they are not online on this server.
+     */
+    public JadedSyncPlayer getPlayer(@NotNull final String username) {
+        return this.players.get(username);
+    }
 
-        return null;
+    /**
+     * Get all players cached on this server.
+     * @return Unmodifiable view of the cached players.
+     */
+    public Collection<JadedSyncPlayer> getPlayers() {
+        return Collections.unmodifiableCollection(this.players.values());
     }
 
+    /**
+     * Removes a player from the cache.
+     * @param uuid UUID of the player to remove.
+     */
     public void removePlayer(@NotNull final UUID uuid) {
         this.players.remove(uuid);
     }
@@ -27,23 +27,31 @@ package net.jadedmc.jadedsync.api.player;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashMap;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Stores JadedSyncPlayers by their UUID.
+ * Also keeps a case-insensitive index of usernames, so looking a player up by name does not scan every player.
+ * Safe to read from any thread without locking, since players are added and removed on the main thread but read from async tasks.
+ * <p>
+ * Players are kept in a map that is not exposed, and every change goes through {@link #compute},
+ * including changes made through the other Map methods and the key, value and entry views, so the username index never falls out of sync.
+ */
+public class JadedSyncPlayerMap extends AbstractMap<UUID, JadedSyncPlayer> {
+    private final Map<UUID, JadedSyncPlayer> players = new ConcurrentHashMap<>();
+    private final Map<String, UUID> names = new ConcurrentHashMap<>();
+    private final Set<Map.Entry<UUID, JadedSyncPlayer>> entries = new EntrySet();
 
-public class JadedSyncPlayerMap extends HashMap<UUID, JadedSyncPlayer> {
     /**
      * Check if the map contains a player with a given username.
      * @param username Username to check.
      * @return true if the player is contained, false if they are not.
      */
     public boolean contains(@NotNull final String username) {
-        for(final JadedSyncPlayer syncPlayer : this.values()) {
-            if(syncPlayer.getName().equalsIgnoreCase(username)) {
-                return true;
-            }
-        }
-
-        return false;
+        return this.get(username) != null;
     }
 
     /**
@@ -70,12 +78,234 @@ public class JadedSyncPlayerMap extends HashMap<UUID, JadedSyncPlayer> {
      * @return The associated player, null if not found.
      */
     public JadedSyncPlayer get(@NotNull final String username) {
-        for(final JadedSyncPlayer syncPlayer : this.values()) {
-            if(syncPlayer.getName().equalsIgnoreCase(username)) {
-                return syncPlayer;
+        final UUID uuid = this.names.get(username.toLowerCase(Locale.ROOT));
+
+        if(uuid == null) {
+            return null;
+        }
+
+        final JadedSyncPlayer player = this.players.get(uuid);
+
+        // The index can briefly point at a player who is being replaced or removed.
+        if(player == null || !player.getName().equalsIgnoreCase(username)) {
+            return null;
+        }
+
+        return player;
+    }
+
+    @Override
+    public JadedSyncPlayer get(final Object uuid) {
+        return this.players.get(uuid);
+    }
+
+    @Override
+    public boolean containsKey(final Object uuid) {
+        return this.players.containsKey(uuid);
+    }
+
+    @Override
+    public int size() {
+        return this.players.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.players.isEmpty();
+    }
+
+    @Override
+    public JadedSyncPlayer put(@NotNull final UUID uuid, @NotNull final JadedSyncPlayer player) {
+        final JadedSyncPlayer[] previous = new JadedSyncPlayer[1];
+
+        compute(uuid, (key, current) -> {
+            previous[0] = current;
+            return player;
+        });
+
+        return previous[0];
+    }
+
+    @Override
+    public JadedSyncPlayer putIfAbsent(@NotNull final UUID uuid, @NotNull final JadedSyncPlayer player) {
+        final JadedSyncPlayer[] previous = new JadedSyncPlayer[1];
+
+        compute(uuid, (key, current) -> {
+            previous[0] = current;
+            return current == null ? player : current;
+        });
+
+        return previous[0];
+    }
+
+    @Override
+    public JadedSyncPlayer remove(final Object uuid) {
+        if(!(uuid instanceof UUID key)) {
+            return null;
+        }
+
+        final JadedSyncPlayer[] removed = new JadedSyncPlayer[1];
+
+        computeIfPresent(key, (ignored, current) -> {
+            removed[0] = current;
+            return null;
+        });
+
+        return removed[0];
+    }
+
+    @Override
+    public boolean remove(final Object uuid, final Object player) {
+        if(!(uuid instanceof UUID key) || player == null) {
+            return false;
+        }
+
+        final boolean[] removed = new boolean[1];
+
+        computeIfPresent(key, (ignored, current) -> {
+            if(!current.equals(player)) {
+                return current;
             }
+
+            removed[0] = true;
+            return null;
+        });
+
+        return removed[0];
+    }
+
+    @Override
+    public JadedSyncPlayer computeIfAbsent(@NotNull final UUID uuid, @NotNull final Function<? super UUID, ? extends JadedSyncPlayer> function) {
+        return compute(uuid, (key, current) -> current == null ? function.apply(key) : current);
+    }
+
+    @Override
+    public JadedSyncPlayer computeIfPresent(@NotNull final UUID uuid, @NotNull final BiFunction<? super UUID, ? super JadedSyncPlayer, ? extends JadedSyncPlayer> function) {
+        return compute(uuid, (key, current) -> current == null ? null : function.apply(key, current));
+    }
+
+    @Override
+    public JadedSyncPlayer merge(@NotNull final UUID uuid, @NotNull final JadedSyncPlayer player, @NotNull final BiFunction<? super JadedSyncPlayer, ? super JadedSyncPlayer, ? extends JadedSyncPlayer> function) {
+        return compute(uuid, (key, current) -> current == null ? player : function.apply(current, player));
+    }
+
+    /**
+     * Changes the player stored under a UUID, and updates the username index to match.
+     * Every change to the map ends up here, so changes to the same player update the index in order.
+     * @param uuid UUID of the player to change.
+     * @param function Gets the new player from the current one. Returning null removes the player.
+     * @return The player now stored, null if there is none.
+     */
+    @Override
+    public JadedSyncPlayer compute(@NotNull final UUID uuid, @NotNull final BiFunction<? super UUID, ? super JadedSyncPlayer, ? extends JadedSyncPlayer> function) {
+        return this.players.compute(uuid, (key, current) -> {
+            final JadedSyncPlayer player = function.apply(key, current);
+
+            // Drop the old name in case the player was removed or changed it.
+            if(current != null && (player == null || !current.getName().equalsIgnoreCase(player.getName()))) {
+                this.names.remove(current.getName().toLowerCase(Locale.ROOT), key);
+            }
+
+            if(player != null) {
+                this.names.put(player.getName().toLowerCase(Locale.ROOT), key);
+            }
+
+            return player;
+        });
+    }
+
+    @Override
+    public void clear() {
+        for(final UUID uuid : List.copyOf(this.players.keySet())) {
+            remove(uuid);
         }
+    }
+
+    /**
+     * Gets a view of every player in the map.
+     * Removing through the view, or its iterator, also updates the username index.
+     * @return Set of UUID and player pairs.
+     */
+    @Override
+    public @NotNull Set<Map.Entry<UUID, JadedSyncPlayer>> entrySet() {
+        return this.entries;
+    }
+
+    /**
+     * View of the players in the map, which sends every change back through the map.
+     */
+    private class EntrySet extends AbstractSet<Map.Entry<UUID, JadedSyncPlayer>> {
+
+        @Override
+        public @NotNull Iterator<Map.Entry<UUID, JadedSyncPlayer>> iterator() {
+            final Iterator<Map.Entry<UUID, JadedSyncPlayer>> iterator = players.entrySet().iterator();
 
-        return null;
+            return new Iterator<>() {
+                private Map.Entry<UUID, JadedSyncPlayer> last;
+
+                @Override
+                public boolean hasNext() {
+                    return iterator.hasNext();
+                }
+
+                @Override
+                public Map.Entry<UUID, JadedSyncPlayer> next() {
+                    final Map.Entry<UUID, JadedSyncPlayer> entry = iterator.next();
+                    this.last = new Entry(entry.getKey(), entry.getValue());
+                    return this.last;
+                }
+
+                @Override
+                public void remove() {
+                    if(this.last == null) {
+                        throw new IllegalStateException();
+                    }
+
+                    JadedSyncPlayerMap.this.remove(this.last.getKey(), this.last.getValue());
+                    this.last = null;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return players.size();
+        }
+
+        @Override
+        public boolean contains(final Object object) {
+            return object instanceof Map.Entry<?, ?> entry && entry.getValue() != null && entry.getValue().equals(players.get(entry.getKey()));
+        }
+
+        @Override
+        public boolean remove(final Object object) {
+            return object instanceof Map.Entry<?, ?> entry && JadedSyncPlayerMap.this.remove(entry.getKey(), entry.getValue());
+        }
+
+        @Override
+        public void clear() {
+            JadedSyncPlayerMap.this.clear();
+        }
+    }
+
+    /**
+     * A single player in the map. Setting its value puts the player in the map.
+     */
+    private class Entry extends SimpleEntry<UUID, JadedSyncPlayer> {
+
+        /**
+         * Creates the entry.
+         * @param uuid UUID of the player.
+         * @param player The player.
+         */
+        private Entry(@NotNull final UUID uuid, @NotNull final JadedSyncPlayer player) {
+            super(uuid, player);
+        }
+
+        @Override
+        public JadedSyncPlayer setValue(final JadedSyncPlayer player) {
+            super.setValue(player);
+            return JadedSyncPlayerMap.this.put(getKey(), player);
+        }
     }
 }
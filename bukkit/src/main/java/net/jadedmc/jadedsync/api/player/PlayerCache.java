@@ -0,0 +1,241 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.api.player;
+
+import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
+import net.jadedmc.jadedsync.database.RedisSubscriber;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches players on other servers, so looking the same players up repeatedly does not go to Redis every time.
+ * Holds at most "Cache.players.max-size" players, evicting the least recently used, and each for at most "Cache.players.ttl" seconds.
+ * Players are removed as soon as another server saves them, through an invalidation message.
+ * While pub/sub is disconnected, invalidations can be missed, so the cache is bypassed and then cleared once reconnected.
+ */
+public class PlayerCache {
+    private final JadedSyncBukkitPlugin plugin;
+    private final Map<UUID, Entry> cache;
+    private final int maxSize;
+    private final long ttl;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private int reconnects = 0;
+    private long generation = 0;
+
+    /**
+     * Creates the cache.
+     * @param plugin Instance of the plugin.
+     */
+    public PlayerCache(@NotNull final JadedSyncBukkitPlugin plugin) {
+        this.plugin = plugin;
+        this.maxSize = plugin.getConfigManager().getConfig().getInt("Cache.players.max-size", 1000);
+        this.ttl = plugin.getConfigManager().getConfig().getLong("Cache.players.ttl", 10L) * 1000;
+
+        // Access ordered, so the eldest entry is always the least recently used.
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<UUID, Entry> eldest) {
+                if(size() > maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+
+                return false;
+            }
+        };
+
+        // Clear out expired players, so they do not take up space until they are evicted.
+        final long period = Math.max(20, this.ttl / 50);
+        plugin.getServer().getScheduler().runTaskTimer(plugin, this::removeExpired, period, period);
+    }
+
+    /**
+     * Gets a cached player.
+     * @param uuid UUID of the player.
+     * @return The cached player, or null if they are not cached or have expired.
+     */
+    public JadedSyncPlayer get(@NotNull final UUID uuid) {
+        if(!isUsable()) {
+            misses.increment();
+            return null;
+        }
+
+        synchronized(cache) {
+            final Entry entry = cache.get(uuid);
+
+            if(entry == null) {
+                misses.increment();
+                return null;
+            }
+
+            if(entry.expires() <= System.currentTimeMillis()) {
+                cache.remove(uuid);
+                evictions.increment();
+                misses.increment();
+                return null;
+            }
+
+            hits.increment();
+            return entry.player();
+        }
+    }
+
+    /**
+     * Gets the current invalidation generation, which changes every time players are invalidated.
+     * Should be read before loading players from Redis, and passed to {@link #put(JadedSyncPlayer, long)}.
+     * @return Current generation.
+     */
+    public long getGeneration() {
+        synchronized(cache) {
+            return generation;
+        }
+    }
+
+    /**
+     * Caches a player loaded from Redis.
+     * Skipped if anything was invalidated since the load started, since the loaded copy may already be out of date.
+     * @param player Player to cache.
+     * @param generation Generation from before the player was loaded.
+     */
+    public void put(@NotNull final JadedSyncPlayer player, final long generation) {
+        if(maxSize <= 0 || !isUsable()) {
+            return;
+        }
+
+        synchronized(cache) {
+            if(this.generation != generation) {
+                return;
+            }
+
+            cache.put(player.getUniqueId(), new Entry(player, System.currentTimeMillis() + ttl));
+        }
+    }
+
+    /**
+     * Removes a group of players from the cache.
+     * @param uuids UUIDs of the players to remove.
+     */
+    public void invalidate(@NotNull final Collection<UUID> uuids) {
+        synchronized(cache) {
+            generation++;
+            uuids.forEach(cache::remove);
+        }
+    }
+
+    /**
+     * Removes a player from the cache.
+     * @param uuid UUID of the player to remove.
+     */
+    public void invalidate(@NotNull final UUID uuid) {
+        synchronized(cache) {
+            generation++;
+            cache.remove(uuid);
+        }
+    }
+
+    /**
+     * Get the number of lookups that were answered by the cache.
+     * @return Number of cache hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Get the number of lookups that had to go to Redis.
+     * @return Number of cache misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Get the number of players removed because the cache was full or they expired.
+     * @return Number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Get the number of players currently cached.
+     * @return Cache size.
+     */
+    public int getSize() {
+        synchronized(cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Check if cached players can be trusted, based on whether invalidation messages are being received.
+     * Clears the cache if pub/sub reconnected since the last check, since invalidations may have been missed.
+     * @return Whether the cache can be used.
+     */
+    private boolean isUsable() {
+        final RedisSubscriber subscriber = plugin.getRedis().getSubscriber();
+
+        if(subscriber == null || !subscriber.isConnected()) {
+            return false;
+        }
+
+        synchronized(cache) {
+            if(subscriber.getReconnects() != reconnects) {
+                reconnects = subscriber.getReconnects();
+                generation++;
+                cache.clear();
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes all expired players from the cache.
+     */
+    private void removeExpired() {
+        final long now = System.currentTimeMillis();
+
+        synchronized(cache) {
+            final int size = cache.size();
+            cache.values().removeIf(entry -> entry.expires() <= now);
+            evictions.add(size - cache.size());
+        }
+    }
+
+    /**
+     * A cached player.
+     * @param player The player.
+     * @param expires Time (in ms since epoch) the player should no longer be trusted.
+     */
+    private record Entry(JadedSyncPlayer player, long expires) {}
+}
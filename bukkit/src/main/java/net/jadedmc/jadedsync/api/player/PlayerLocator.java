@@ -0,0 +1,162 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.api.player;
+
+import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
+import org.jetbrains.annotations.NotNull;
+import redis.clients.jedis.Jedis;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Finds which server players are on, so messages can be sent only to the servers hosting them.
+ * Locations of remote players are cached for a short time, configured with "Cache.location-ttl".
+ */
+public class PlayerLocator {
+    private final JadedSyncBukkitPlugin plugin;
+    private final Map<UUID, Location> cache = new ConcurrentHashMap<>();
+    private final long ttl;
+
+    /**
+     * Creates the locator.
+     * @param plugin Instance of the plugin.
+     */
+    public PlayerLocator(@NotNull final JadedSyncBukkitPlugin plugin) {
+        this.plugin = plugin;
+        this.ttl = plugin.getConfigManager().getConfig().getLong("Cache.location-ttl", 30L) * 1000;
+
+        // Clear out expired locations, so players who have left the network are not kept forever.
+        final long period = Math.max(20, this.ttl / 50);
+        plugin.getServer().getScheduler().runTaskTimer(plugin, this::removeExpired, period, period);
+    }
+
+    /**
+     * Groups players by the server they are currently on.
+     * Players on this server are found locally, and the rest are looked up with a single HMGET.
+     * Players who are not online anywhere are left out.
+     * <p><b>Warning: This is done on the thread this is called from. Should be used asynchronously.</b></p>
+     * @param uuids UUIDs of the players to find.
+     * @param useCache Whether cached locations can be used, instead of checking Redis again.
+     * @return Map of server names to the players on them.
+     */
+    public Map<String, List<UUID>> locate(@NotNull final Collection<UUID> uuids, final boolean useCache) {
+        final Map<String, List<UUID>> servers = new HashMap<>();
+        final List<UUID> lookup = new ArrayList<>();
+        final String currentServer = plugin.getInstanceMonitor().getCurrentInstance().getName();
+        final long now = System.currentTimeMillis();
+
+        for(final UUID uuid : uuids) {
+            // Players on this server don't need to be looked up.
+            if(plugin.getJadedSyncPlayerManager().getPlayer(uuid) != null) {
+                servers.computeIfAbsent(currentServer, server -> new ArrayList<>()).add(uuid);
+                continue;
+            }
+
+            final Location location = cache.get(uuid);
+            if(useCache && location != null && location.expires() > now) {
+                servers.computeIfAbsent(location.server(), server -> new ArrayList<>()).add(uuid);
+                continue;
+            }
+
+            lookup.add(uuid);
+        }
+
+        if(lookup.isEmpty()) {
+            return servers;
+        }
+
+        final Map<UUID, String> found = lookup(lookup);
+        found.forEach((uuid, server) -> {
+            cache.put(uuid, new Location(server, now + ttl));
+            servers.computeIfAbsent(server, name -> new ArrayList<>()).add(uuid);
+        });
+
+        return servers;
+    }
+
+    /**
+     * Forgets the cached location of a player.
+     * @param uuid UUID of the player.
+     */
+    public void invalidate(@NotNull final UUID uuid) {
+        cache.remove(uuid);
+    }
+
+    /**
+     * Forgets the cached locations of a group of players.
+     * @param uuids UUIDs of the players.
+     */
+    public void invalidate(@NotNull final Collection<UUID> uuids) {
+        uuids.forEach(cache::remove);
+    }
+
+    /**
+     * Looks up the servers a group of players are on in Redis.
+     * Falls back to the "server" field of the player record for players saved before the location index existed.
+     * @param uuids UUIDs of the players to look up.
+     * @return Map of each online player to their server.
+     */
+    private Map<UUID, String> lookup(@NotNull final List<UUID> uuids) {
+        final Map<UUID, String> found = new HashMap<>();
+
+        try(Jedis jedis = plugin.getRedis().getResource()) {
+            final List<String> locations = jedis.hmget("jadedsync:index:locations", uuids.stream().map(UUID::toString).toArray(String[]::new));
+            final List<UUID> missing = new ArrayList<>();
+
+            for(int i = 0; i < uuids.size(); i++) {
+                if(locations.get(i) == null) {
+                    missing.add(uuids.get(i));
+                    continue;
+                }
+
+                found.put(uuids.get(i), locations.get(i));
+            }
+
+            if(missing.isEmpty()) {
+                return found;
+            }
+
+            found.putAll(PlayerRecords.getField(jedis, missing, "server"));
+        }
+
+        return found;
+    }
+
+    /**
+     * Removes all expired locations from the cache.
+     */
+    private void removeExpired() {
+        final long now = System.currentTimeMillis();
+        cache.values().removeIf(location -> location.expires() <= now);
+    }
+
+    /**
+     * A cached player location.
+     * @param server Server the player was on.
+     * @param expires Time (in ms since epoch) the location should no longer be trusted.
+     */
+    private record Location(String server, long expires) {}
+}
@@ -0,0 +1,141 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.api.player;
+
+import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import redis.clients.jedis.Jedis;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds player records that were loaded while the player was still logging in.
+ * Lets the join listener set players up immediately, instead of waiting on Redis after they have joined.
+ * Records that are not claimed within "Cache.prefetch-ttl" seconds are discarded, such as when a login is denied.
+ * Records are also discarded when another server saves the player, so the join listener loads the newer copy instead.
+ */
+public class PlayerPrefetcher {
+    private final JadedSyncBukkitPlugin plugin;
+    private final Map<UUID, Prefetched> cache = new ConcurrentHashMap<>();
+    private final Map<UUID, Boolean> loading = new ConcurrentHashMap<>();
+    private final long ttl;
+
+    /**
+     * Creates the prefetcher.
+     * @param plugin Instance of the plugin.
+     */
+    public PlayerPrefetcher(@NotNull final JadedSyncBukkitPlugin plugin) {
+        this.plugin = plugin;
+        this.ttl = plugin.getConfigManager().getConfig().getLong("Cache.prefetch-ttl", 10L) * 1000;
+
+        // Clear out records for players who never finished joining.
+        final long period = Math.max(20, this.ttl / 50);
+        plugin.getServer().getScheduler().runTaskTimer(plugin, this::removeExpired, period, period);
+    }
+
+    /**
+     * Loads a player's record from Redis and holds onto it until they join.
+     * Players without a saved record are remembered as well, so joining does not look them up again.
+     * <p><b>Warning: This is done on the thread this is called from. Should be used asynchronously.</b></p>
+     * @param uuid UUID of the player logging in.
+     */
+    public void prefetch(@NotNull final UUID uuid) {
+        // Tracks whether the player is saved elsewhere while their record is loading.
+        loading.put(uuid, Boolean.FALSE);
+
+        final JadedSyncPlayer player;
+        try(Jedis jedis = plugin.getRedis().getResource()) {
+            player = PlayerRecords.load(plugin, jedis, uuid);
+        }
+        catch(final RuntimeException exception) {
+            loading.remove(uuid);
+            throw exception;
+        }
+
+        // Skip the record if it was invalidated during the load, since it may be older than what was just saved.
+        loading.compute(uuid, (key, invalidated) -> {
+            if(Boolean.FALSE.equals(invalidated)) {
+                cache.put(uuid, new Prefetched(player, System.currentTimeMillis() + ttl));
+            }
+
+            return null;
+        });
+    }
+
+    /**
+     * Removes and returns a player's prefetched record.
+     * @param uuid UUID of the player.
+     * @return The result of the prefetch, or null if the player was not prefetched or it has expired.
+     */
+    @Nullable
+    public Prefetched take(@NotNull final UUID uuid) {
+        final Prefetched prefetched = cache.remove(uuid);
+
+        if(prefetched == null || prefetched.expires() <= System.currentTimeMillis()) {
+            return null;
+        }
+
+        return prefetched;
+    }
+
+    /**
+     * Discards a player's prefetched record, if there is one.
+     * A record that is still loading is discarded once it finishes.
+     * @param uuid UUID of the player.
+     */
+    public void invalidate(@NotNull final UUID uuid) {
+        loading.computeIfPresent(uuid, (key, invalidated) -> Boolean.TRUE);
+        cache.remove(uuid);
+    }
+
+    /**
+     * Discards the prefetched records of multiple players.
+     * @param uuids UUIDs of the players.
+     */
+    public void invalidate(@NotNull final Collection<UUID> uuids) {
+        for(final UUID uuid : uuids) {
+            this.invalidate(uuid);
+        }
+    }
+
+    /**
+     * Removes all expired records from the cache.
+     */
+    private void removeExpired() {
+        final long now = System.currentTimeMillis();
+        cache.values().removeIf(prefetched -> prefetched.expires() <= now);
+    }
+
+    /**
+     * A prefetched player record.
+     * @param player The loaded player, or null if they have never been saved.
+     * @param expires Time (in ms since epoch) the record should no longer be trusted.
+     */
+    public record Prefetched(@Nullable JadedSyncPlayer player, long expires) {}
+}
@@ -0,0 +1,222 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.api.player;
+
+import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
+import net.jadedmc.jadedsync.database.RecordFormat;
+import org.bson.Document;
+import org.jetbrains.annotations.NotNull;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Loads player records from Redis.
+ * Players are stored as hashes, with one field per attribute and one per integration.
+ * Integration fields are stored in the configured RecordFormat, and read in whichever format they were saved with.
+ * Records saved by older versions as a single Json string are still read, and are converted to hashes the next time they are saved.
+ */
+public class PlayerRecords {
+
+    /**
+     * Gets the Redis key a player is stored under.
+     * @param uuid UUID of the player.
+     * @return Key of the player's record.
+     */
+    public static String key(@NotNull final Object uuid) {
+        return "jadedsync:players:" + uuid;
+    }
+
+    /**
+     * Loads a group of players in a single round trip.
+     * @param plugin Instance of the plugin.
+     * @param jedis Connection to use.
+     * @param uuids UUIDs of the players to load.
+     * @return Map of every player that exists.
+     */
+    public static Map<UUID, JadedSyncPlayer> load(@NotNull final JadedSyncBukkitPlugin plugin, @NotNull final Jedis jedis, @NotNull final List<UUID> uuids) {
+        final Map<UUID, JadedSyncPlayer> players = new HashMap<>();
+
+        if(uuids.isEmpty()) {
+            return players;
+        }
+
+        final Pipeline pipeline = jedis.pipelined();
+        final List<Response<Map<byte[], byte[]>>> responses = new ArrayList<>(uuids.size());
+        uuids.forEach(uuid -> responses.add(pipeline.hgetAll(binaryKey(uuid))));
+        pipeline.sync();
+
+        final List<UUID> legacy = new ArrayList<>();
+        for(int i = 0; i < uuids.size(); i++) {
+            try {
+                final Map<byte[], byte[]> fields = responses.get(i).get();
+
+                // Skip players that do not exist.
+                if(fields.isEmpty()) {
+                    continue;
+                }
+
+                players.put(uuids.get(i), fromHash(plugin, fields));
+            }
+            catch(final JedisDataException exception) {
+                // Wrong type, so the record is still stored as a Json string.
+                legacy.add(uuids.get(i));
+            }
+        }
+
+        if(legacy.isEmpty()) {
+            return players;
+        }
+
+        final List<String> values = jedis.mget(legacy.stream().map(PlayerRecords::key).toArray(String[]::new));
+        for(int i = 0; i < legacy.size(); i++) {
+            if(values.get(i) != null) {
+                players.put(legacy.get(i), new JadedSyncPlayer(plugin, values.get(i)));
+            }
+        }
+
+        return players;
+    }
+
+    /**
+     * Loads a single player.
+     * @param plugin Instance of the plugin.
+     * @param jedis Connection to use.
+     * @param uuid UUID of the player to load.
+     * @return The player, or null if they do not exist.
+     */
+    public static JadedSyncPlayer load(@NotNull final JadedSyncBukkitPlugin plugin, @NotNull final Jedis jedis, @NotNull final UUID uuid) {
+        try {
+            final Map<byte[], byte[]> fields = jedis.hgetAll(binaryKey(uuid));
+            return fields.isEmpty() ? null : fromHash(plugin, fields);
+        }
+        catch(final JedisDataException exception) {
+            final String json = jedis.get(key(uuid));
+            return json == null ? null : new JadedSyncPlayer(plugin, json);
+        }
+    }
+
+    /**
+     * Reads a single field from a group of player records, such as "server" or "integration:&lt;id&gt;", without loading the rest of the record.
+     * Integration data is returned as Json, whichever format it was saved in.
+     * @param jedis Connection to use.
+     * @param uuids UUIDs of the players.
+     * @param field Field to read.
+     * @return Map of each player that has the field to its value.
+     */
+    public static Map<UUID, String> getField(@NotNull final Jedis jedis, @NotNull final List<UUID> uuids, @NotNull final String field) {
+        final Map<UUID, String> values = new HashMap<>();
+        final boolean integration = field.startsWith(JadedSyncPlayer.INTEGRATION_PREFIX);
+        final byte[] binaryField = field.getBytes(StandardCharsets.UTF_8);
+
+        final Pipeline pipeline = jedis.pipelined();
+        final List<Response<byte[]>> responses = new ArrayList<>(uuids.size());
+        uuids.forEach(uuid -> responses.add(pipeline.hget(binaryKey(uuid), binaryField)));
+        pipeline.sync();
+
+        final List<UUID> legacy = new ArrayList<>();
+        for(int i = 0; i < uuids.size(); i++) {
+            try {
+                final byte[] value = responses.get(i).get();
+
+                if(value != null) {
+                    values.put(uuids.get(i), integration ? RecordFormat.decode(value).toJson() : new String(value, StandardCharsets.UTF_8));
+                }
+            }
+            catch(final JedisDataException exception) {
+                legacy.add(uuids.get(i));
+            }
+        }
+
+        // Older records need to be loaded in full.
+        if(!legacy.isEmpty()) {
+            final List<String> records = jedis.mget(legacy.stream().map(PlayerRecords::key).toArray(String[]::new));
+
+            for(int i = 0; i < legacy.size(); i++) {
+                if(records.get(i) == null) {
+                    continue;
+                }
+
+                final Document document = Document.parse(records.get(i));
+
+                // Integrations were nested in their own document.
+                if(integration) {
+                    final Document data = document.get("integrations", Document.class).get(field.substring(JadedSyncPlayer.INTEGRATION_PREFIX.length()), Document.class);
+
+                    if(data != null) {
+                        values.put(legacy.get(i), data.toJson());
+                    }
+
+                    continue;
+                }
+
+                final Object value = document.get(field);
+                if(value != null) {
+                    values.put(legacy.get(i), value.toString());
+                }
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * Gets the Redis key a player is stored under, as bytes for binary commands.
+     * @param uuid UUID of the player.
+     * @return Key of the player's record.
+     */
+    private static byte[] binaryKey(@NotNull final Object uuid) {
+        return key(uuid).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Creates a player from the fields of their hash.
+     * Integration data is kept as it was stored, since it may be in a binary format.
+     * @param plugin Instance of the plugin.
+     * @param hash Fields of the player's hash.
+     * @return The player.
+     */
+    private static JadedSyncPlayer fromHash(@NotNull final JadedSyncBukkitPlugin plugin, @NotNull final Map<byte[], byte[]> hash) {
+        final Map<String, String> fields = new HashMap<>();
+        final Map<String, byte[]> integrations = new HashMap<>();
+
+        for(final Map.Entry<byte[], byte[]> field : hash.entrySet()) {
+            final String name = new String(field.getKey(), StandardCharsets.UTF_8);
+
+            if(name.startsWith(JadedSyncPlayer.INTEGRATION_PREFIX)) {
+                integrations.put(name.substring(JadedSyncPlayer.INTEGRATION_PREFIX.length()), field.getValue());
+            }
+            else {
+                fields.put(name, new String(field.getValue(), StandardCharsets.UTF_8));
+            }
+        }
+
+        return new JadedSyncPlayer(plugin, fields, integrations);
+    }
+}
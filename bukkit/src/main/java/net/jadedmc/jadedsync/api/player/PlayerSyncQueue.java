@@ -0,0 +1,448 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.api.player;
+
+import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
+import net.jadedmc.jadedsync.database.RecordFormat;
+import net.jadedmc.jadedsync.messaging.Message;
+import net.jadedmc.jadedsync.messaging.MessageChannels;
+import net.jadedmc.jadedsync.messaging.MessageType;
+import org.jetbrains.annotations.NotNull;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects players whose data has changed, and writes them to Redis in batches.
+ * Every change made to a player within the same flush window, set by "Sync.flush-interval", results in a single write.
+ * <p>
+ * A full write saves every field of the player. When only some integrations changed, only their fields are written,
+ * so servers updating different integrations of the same player don't overwrite each other.
+ * <p>
+ * Full writes are compare-and-set on the record's version, so a late write from a server the player has already left
+ * can't overwrite the data saved by the server they are on now. Instead, the integrations it changed are merged into
+ * the saved record, so the last changes made before switching servers are kept.
+ */
+public class PlayerSyncQueue {
+    /**
+     * Replaces the player's fields if the record is still at the expected version (ARGV[1]), converting records saved
+     * as a Json string by older versions into a hash. Integration fields not being written are removed, since the player
+     * no longer has data for them. On success, the player's location (ARGV[2] to ARGV[3]) is saved to
+     * the location index (KEYS[2]) as well, so a stale write can't move the player back to a server they have left.
+     * The player is also added to the player index (KEYS[3]) and the username index (KEYS[4], ARGV[4] to ARGV[2]),
+     * so a rejected write doesn't change them either.
+     * Returns the new version, or -1 without changing anything if another server wrote the record first.
+     */
+    private static final byte[] FULL_WRITE = """
+            local recordType = redis.call('TYPE', KEYS[1]).ok
+            local current = 0
+            if recordType == 'hash' then
+                current = tonumber(redis.call('HGET', KEYS[1], 'version') or '0')
+            end
+            if current ~= tonumber(ARGV[1]) then
+                return -1
+            end
+            if recordType ~= 'hash' and recordType ~= 'none' then
+                redis.call('DEL', KEYS[1])
+            end
+            local written = {}
+            for i = 5, #ARGV, 2 do
+                written[ARGV[i]] = true
+            end
+            for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do
+                if string.sub(field, 1, 12) == 'integration:' and not written[field] then
+                    redis.call('HDEL', KEYS[1], field)
+                end
+            end
+            redis.call('HSET', KEYS[1], 'version', current + 1, unpack(ARGV, 5))
+            redis.call('HSET', KEYS[2], ARGV[2], ARGV[3])
+            redis.call('SADD', KEYS[3], ARGV[2])
+            redis.call('HSET', KEYS[4], ARGV[4], ARGV[2])
+            return current + 1
+            """.getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * Sets (or removes, when the value is empty) a few fields of the player.
+     * Only touches the given fields, so it does not need to check the version, but still increases it.
+     * Returns the new version, or 0 without changing anything if the player is not stored as a hash yet, so a full write can be done instead.
+     */
+    private static final byte[] PARTIAL_WRITE = """
+            if redis.call('TYPE', KEYS[1]).ok ~= 'hash' then
+                return 0
+            end
+            for i = 1, #ARGV, 2 do
+                if ARGV[i + 1] == '' then
+                    redis.call('HDEL', KEYS[1], ARGV[i])
+                else
+                    redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1])
+                end
+            end
+            return redis.call('HINCRBY', KEYS[1], 'version', 1)
+            """.getBytes(StandardCharsets.UTF_8);
+
+    private static final int MAX_ATTEMPTS = 3;
+    private final JadedSyncBukkitPlugin plugin;
+    private final Map<UUID, Pending> dirty = new ConcurrentHashMap<>();
+    private final LongAdder requested = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    /**
+     * Creates the queue and starts flushing it.
+     * @param plugin Instance of the plugin.
+     */
+    public PlayerSyncQueue(@NotNull final JadedSyncBukkitPlugin plugin) {
+        this.plugin = plugin;
+
+        final long interval = Math.max(1, plugin.getConfigManager().getConfig().getLong("Sync.flush-interval", 5L));
+        plugin.getServer().getScheduler().runTaskTimer(plugin, this::flush, interval, interval);
+    }
+
+    /**
+     * Marks every field of a player as changed, so they are written in the next flush.
+     * @param player Player to write.
+     */
+    public void markDirty(@NotNull final JadedSyncPlayer player) {
+        this.dirty.compute(player.getUniqueId(), (uuid, pending) -> new Pending(player, true, Set.of()));
+        this.requested.increment();
+    }
+
+    /**
+     * Marks a single integration of a player as changed, so only its field is written in the next flush.
+     * @param player Player to write.
+     * @param integration ID of the integration that changed.
+     */
+    public void markDirty(@NotNull final JadedSyncPlayer player, @NotNull final String integration) {
+        this.dirty.compute(player.getUniqueId(), (uuid, pending) -> {
+            // A full write already includes the integration.
+            if(pending != null && pending.full()) {
+                return pending;
+            }
+
+            final Set<String> integrations = new HashSet<>();
+            if(pending != null) {
+                integrations.addAll(pending.integrations());
+            }
+            integrations.add(integration);
+
+            return new Pending(player, false, integrations);
+        });
+        this.requested.increment();
+    }
+
+    /**
+     * Writes every changed player to Redis in a single pipeline, from the Redis executor.
+     */
+    public void flush() {
+        if(this.dirty.isEmpty()) {
+            return;
+        }
+
+        final List<Pending> players = new ArrayList<>();
+        for(final UUID uuid : this.dirty.keySet()) {
+            final Pending pending = this.dirty.remove(uuid);
+
+            if(pending != null) {
+                players.add(pending);
+            }
+        }
+
+        submit(players);
+    }
+
+    /**
+     * Writes a single player right away, if they have unwritten changes.
+     * Used when a player leaves, so their latest data is saved before they join another server.
+     * @param uuid UUID of the player.
+     */
+    public void flush(@NotNull final UUID uuid) {
+        final Pending pending = this.dirty.remove(uuid);
+
+        if(pending == null) {
+            return;
+        }
+
+        submit(List.of(pending));
+    }
+
+    /**
+     * Writes a group of players from the Redis executor.
+     * If the executor is full, the players are put back in the queue for the next flush.
+     * @param players Players to write, along with what changed.
+     */
+    private void submit(@NotNull final List<Pending> players) {
+        try {
+            plugin.getRedisExecutor().execute(() -> {
+                try {
+                    write(players);
+                }
+                catch(Exception exception) {
+                    exception.printStackTrace();
+                }
+            });
+        }
+        catch(RejectedExecutionException exception) {
+            plugin.getLogger().warning("I/O queue is full! Retrying " + players.size() + " player writes next flush.");
+            requeue(players);
+        }
+    }
+
+    /**
+     * Puts players whose write failed back in the queue, so they are written in the next flush.
+     * Changes made to a player since are combined with the failed ones.
+     * @param players Players that were not written.
+     */
+    private void requeue(@NotNull final Collection<Pending> players) {
+        for(final Pending pending : players) {
+            this.dirty.merge(pending.player().getUniqueId(), pending, (newer, failed) -> newer.combine(failed));
+        }
+    }
+
+    /**
+     * Gets how many times player data was requested to be synced.
+     * @return Number of sync requests.
+     */
+    public long getRequested() {
+        return this.requested.sum();
+    }
+
+    /**
+     * Gets how many player writes were actually sent to Redis.
+     * @return Number of writes.
+     */
+    public long getWritten() {
+        return this.written.sum();
+    }
+
+    /**
+     * Gets how many writes found the player's record had been changed by another server.
+     * @return Number of write conflicts.
+     */
+    public long getConflicts() {
+        return this.conflicts.sum();
+    }
+
+    /**
+     * Gets how many conflicting writes were given up on, because the player's record kept changing.
+     * @return Number of dropped writes.
+     */
+    public long getDropped() {
+        return this.dropped.sum();
+    }
+
+    /**
+     * Writes a group of players to Redis in one round trip.
+     * Players whose record changed since they were loaded are merged and retried afterwards.
+     * @param players Players to write, along with what changed.
+     */
+    private void write(@NotNull final Collection<Pending> players) {
+        final Map<Pending, Response<Object>> responses = new HashMap<>();
+        final Map<Pending, Long> marks = new HashMap<>();
+
+        final RecordFormat format = plugin.getRedis().getRecordFormat();
+
+        try(Jedis jedis = plugin.getRedis().getResource()) {
+            final Pipeline pipeline = jedis.pipelined();
+
+            for(final Pending pending : players) {
+                final JadedSyncPlayer player = pending.player();
+                final String uuid = player.getUniqueId().toString();
+                marks.put(pending, player.getChangeMark());
+
+                if(pending.full()) {
+                    responses.put(pending, pipeline.eval(FULL_WRITE, fullWriteKeys(player), fullWriteArgs(player, format)));
+                }
+                else {
+                    // Empty values delete the field.
+                    final Map<String, byte[]> fields = player.toIntegrationFields(pending.integrations(), format);
+                    responses.put(pending, pipeline.eval(PARTIAL_WRITE, List.of(bytes(PlayerRecords.key(uuid))), flatten(fields)));
+                }
+            }
+
+            pipeline.sync();
+            this.written.add(players.size());
+
+            responses.forEach((pending, response) -> {
+                final JadedSyncPlayer player = pending.player();
+                final long version = (Long) response.get();
+
+                if(pending.full()) {
+                    if(version > 0) {
+                        player.setVersion(version);
+                        player.clearChanges(marks.get(pending));
+                    }
+                    else {
+                        resolve(jedis, player);
+                    }
+                    return;
+                }
+
+                // Players that are not stored as a hash yet need a full write.
+                if(version == 0) {
+                    markDirty(player);
+                    return;
+                }
+
+                // The written integrations now match what is saved.
+                player.clearChanges(pending.integrations(), marks.get(pending));
+
+                // Only move forward if nobody else wrote in between, otherwise the next full write has to merge.
+                if(version == player.getVersion() + 1) {
+                    player.setVersion(version);
+                }
+            });
+        }
+        catch(Exception exception) {
+            // Some players may not have been written, so try all of them again. Full writes are version checked, so repeating one is safe.
+            exception.printStackTrace();
+            requeue(players);
+            return;
+        }
+
+        // Let other servers know their cached copies of these players are out of date.
+        final List<UUID> uuids = players.stream().map(pending -> pending.player().getUniqueId()).toList();
+        plugin.getRedis().publish(MessageChannels.NETWORK, new Message(MessageType.INVALIDATE, uuids));
+    }
+
+    /**
+     * Retries a full write that conflicted with a write from another server.
+     * The saved copy is merged into this one, and the write is tried again.
+     * If the player is no longer on this server, such as when the quit write lands after the next server's join write,
+     * the integrations changed here are still merged in, but the player's location is left as saved.
+     * @param jedis Connection to use.
+     * @param player Player to write.
+     */
+    private void resolve(@NotNull final Jedis jedis, @NotNull final JadedSyncPlayer player) {
+        for(int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            this.conflicts.increment();
+
+            final JadedSyncPlayer remote = PlayerRecords.load(plugin, jedis, player.getUniqueId());
+            if(remote != null) {
+                player.merge(remote);
+
+                // The player has moved on, so the server they are on now decides where they are.
+                if(plugin.getJadedSyncPlayerManager().getPlayer(player.getUniqueId()) != player) {
+                    player.setServer(remote.getServer());
+                }
+            }
+            else {
+                player.setVersion(0);
+            }
+
+            final long mark = player.getChangeMark();
+            final long version = (Long) jedis.eval(FULL_WRITE, fullWriteKeys(player), fullWriteArgs(player, plugin.getRedis().getRecordFormat()));
+            if(version > 0) {
+                player.setVersion(version);
+                player.clearChanges(mark);
+                return;
+            }
+        }
+
+        this.dropped.increment();
+        plugin.getLogger().warning("Could not save " + player.getName() + " after " + MAX_ATTEMPTS + " attempts, as their data keeps changing.");
+    }
+
+    /**
+     * Builds the keys used by the full write script: the player's record, and the location, player and username indexes.
+     * @param player Player to write.
+     * @return Script keys.
+     */
+    private static List<byte[]> fullWriteKeys(@NotNull final JadedSyncPlayer player) {
+        return List.of(bytes(PlayerRecords.key(player.getUniqueId())), bytes("jadedsync:index:locations"), bytes("jadedsync:index:players"), bytes("jadedsync:index:names"));
+    }
+
+    /**
+     * Builds the arguments of the full write script: the expected version, the player's location, their lowercase username, then every field.
+     * @param player Player to write.
+     * @param format Format to encode integration data with.
+     * @return Script arguments.
+     */
+    private static List<byte[]> fullWriteArgs(@NotNull final JadedSyncPlayer player, @NotNull final RecordFormat format) {
+        final List<byte[]> args = new ArrayList<>();
+        args.add(bytes(String.valueOf(player.getVersion())));
+        args.add(bytes(player.getUniqueId().toString()));
+        args.add(bytes(player.getServer()));
+        args.add(bytes(player.getName().toLowerCase(Locale.ROOT)));
+        args.addAll(flatten(player.toFields(format)));
+        return args;
+    }
+
+    /**
+     * Flattens fields into the alternating name and value list used by the write scripts.
+     * @param fields Fields to flatten.
+     * @return Field names and values.
+     */
+    private static List<byte[]> flatten(@NotNull final Map<String, byte[]> fields) {
+        final List<byte[]> args = new ArrayList<>(fields.size() * 2);
+
+        fields.forEach((field, value) -> {
+            args.add(bytes(field));
+            args.add(value);
+        });
+
+        return args;
+    }
+
+    /**
+     * Converts a string to the bytes sent to Redis.
+     * Scripts are run with binary arguments, since integration data may be stored in a binary format.
+     * @param value String to convert.
+     * @return UTF-8 bytes of the string.
+     */
+    private static byte[] bytes(@NotNull final String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A player waiting to be written.
+     * @param player Player to write.
+     * @param full Whether every field should be written.
+     * @param integrations Integrations to write, when not doing a full write.
+     */
+    private record Pending(JadedSyncPlayer player, boolean full, Set<String> integrations) {
+
+        /**
+         * Combines the changes of an older write with this one.
+         * @param older Older write of the same player.
+         * @return Write containing the changes of both.
+         */
+        private Pending combine(@NotNull final Pending older) {
+            if(this.full || older.full) {
+                return new Pending(this.player, true, Set.of());
+            }
+
+            final Set<String> combined = new HashSet<>(this.integrations);
+            combined.addAll(older.integrations);
+            return new Pending(this.player, false, combined);
+        }
+    }
+}
@@ -28,16 +28,27 @@ import eu.cloudnetservice.driver.inject.InjectionLayer;
 import eu.cloudnetservice.wrapper.configuration.WrapperConfiguration;
 import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
 import net.jadedmc.jadedsync.api.JadedSyncAPI;
+import net.jadedmc.jadedsync.database.RecordFormat;
+import net.jadedmc.jadedsync.messaging.Message;
+import net.jadedmc.jadedsync.messaging.MessageChannels;
+import net.jadedmc.jadedsync.messaging.MessageType;
 import org.bson.Document;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Transaction;
 
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.SocketException;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Stores information from the current server instance, as obtained through Redis.
@@ -46,13 +57,27 @@ public class CurrentInstance {
     private final JadedSyncBukkitPlugin plugin;
     private final String name;
     private final long startTime;
-    private InstanceStatus status;
+    private volatile InstanceStatus status;
     private final int majorVersion;
     private final int minorVersion;
     private String address;
     private final int port;
-    private final Map<String, String> integrations = new HashMap<>();
-    private final Collection<String> tags = new ArrayList<>();
+    private static final Document EMPTY = new Document();
+    private final Map<String, Document> integrations = new ConcurrentHashMap<>();
+    private final Collection<String> tags = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean heartbeatRunning = new AtomicBoolean(false);
+    private static final byte[] SERVER_NAME_FIELD = "serverName".getBytes(StandardCharsets.UTF_8);
+
+    // What the last heartbeat saved, so the next one only has to write what changed.
+    // Only used by the heartbeat currently running.
+    private final int fullHeartbeatInterval;
+    private final long ttl;
+    private Map<String, String> savedFields = new HashMap<>();
+    private Set<String> savedPlayers = new HashSet<>();
+    private Map<String, Document> savedIntegrations = new HashMap<>();
+    private long sequence = 0;
+    private int heartbeatsSinceFull = 0;
+    private boolean fullHeartbeatNeeded = true;
 
     /**
      * Creates the CurrentInstance object.
@@ -85,6 +110,8 @@ public class CurrentInstance {
         }
 
         this.port = plugin.getServer().getPort();
+        this.fullHeartbeatInterval = plugin.getConfigManager().getConfig().getInt("Instances.full-heartbeat-interval", 12);
+        this.ttl = Math.max(10, plugin.getConfigManager().getConfig().getLong("Instances.ttl", 20L));
 
         // Load tags.
         if(plugin.getConfigManager().getConfig().contains("Server.tags")) {
@@ -100,6 +127,11 @@ public class CurrentInstance {
      */
     public void addTag(@NotNull final String tag) {
         this.tags.add(tag);
+
+        // Start receiving messages sent to the tag.
+        if(plugin.getRedis().getSubscriber() != null) {
+            plugin.getRedis().getSubscriber().subscribe(MessageChannels.tag(tag));
+        }
     }
 
     /**
@@ -133,12 +165,34 @@ public class CurrentInstance {
      */
     public String getIntegration(@NotNull final String integration) {
         if(this.integrations.containsKey(integration)) {
-            return this.integrations.get(integration);
+            return this.integrations.get(integration).toJson();
         }
 
         return "";
     }
 
+    /**
+     * Gets the data being cached by a given integration, as a BSON document.
+     * The returned document should not be modified.
+     * @param integration Integration to get the data of.
+     * @return Integration data, empty if there is none.
+     */
+    public Document getIntegrationDocument(@NotNull final String integration) {
+        return this.integrations.getOrDefault(integration, EMPTY);
+    }
+
+    /**
+     * Gets a single value from the data being cached by a given integration.
+     * @param integration Integration to get the data of.
+     * @param key Key of the value.
+     * @param defaultValue Value to return if the integration or key does not exist.
+     * @return The value, or the default value.
+     * @param <T> Type of the value.
+     */
+    public <T> T getIntegrationValue(@NotNull final String integration, @NotNull final String key, @NotNull final T defaultValue) {
+        return getIntegrationDocument(integration).get(key, defaultValue);
+    }
+
     /**
      * Get the major version of the server.
      * E.G 1.X.4
@@ -234,49 +288,278 @@ public class CurrentInstance {
      * Sends a heartbeat message to Redis, containing various data about the instance.
      */
     public void heartbeat() {
+        // Skip this heartbeat if the last one has not been sent yet, so they are never saved out of order.
+        if(!this.heartbeatRunning.compareAndSet(false, true)) {
+            return;
+        }
+
+        // Only capture what needs the main thread. Everything else is done by the executor.
+        final Snapshot snapshot;
+        try {
+            snapshot = this.snapshot();
+        }
+        catch(final Exception exception) {
+            this.heartbeatRunning.set(false);
+            throw exception;
+        }
+
+        try {
+            plugin.getRedisExecutor().execute(() -> {
+                try {
+                    // Update integrations
+                    this.updateIntegrations();
+                    this.save(this.toDocument(snapshot));
+                }
+                finally {
+                    this.heartbeatRunning.set(false);
+                }
+            });
+        }
+        catch(final RejectedExecutionException exception) {
+            // The heartbeat never ran, so let the next one try again.
+            this.heartbeatRunning.set(false);
+            plugin.getLogger().warning("I/O queue is full! Skipping heartbeat.");
+        }
+    }
+
+    /**
+     * Saves a heartbeat to Redis, and sends it to every server.
+     * Only fields, players and integrations that changed since the last heartbeat are written and sent,
+     * along with the heartbeat time and sequence number, which every heartbeat updates.
+     * Every "Instances.full-heartbeat-interval" heartbeats, after a failed one, and once the record has expired, the whole record is rewritten instead.
+     * @param document Document representing the instance.
+     */
+    private void save(@NotNull final Document document) {
+        final byte[] key = InstanceRecords.key(this.name).getBytes(StandardCharsets.UTF_8);
+        final String playersKey = InstanceRecords.playersKey(this.name);
+
+        try(Jedis jedis = plugin.getRedis().getResource()) {
+            this.save(jedis, key, playersKey, document);
+        }
+        catch(final Exception exception) {
+            // Redis may be missing part of the record now, so rewrite all of it next time.
+            this.fullHeartbeatNeeded = true;
+            throw exception;
+        }
+    }
+
+    /**
+     * Writes a heartbeat using a given connection.
+     * Changes are only written if the record still exists. Otherwise, such as when heartbeats stalled long enough for it to expire,
+     * a delta would recreate part of the record, so all of it is written instead and the proxies are told to register the server again.
+     * @param jedis Connection to use.
+     * @param key Key of the instance's record.
+     * @param playersKey Key of the instance's player set.
+     * @param document Document representing the instance.
+     */
+    private void save(@NotNull final Jedis jedis, final byte @NotNull [] key, @NotNull final String playersKey, @NotNull final Document document) {
+        final boolean scheduled = this.fullHeartbeatNeeded || this.heartbeatsSinceFull >= this.fullHeartbeatInterval;
+
+        // Watched so a delta is not applied if the record expires between this check and the write.
+        if(!scheduled) {
+            jedis.watch(key);
+        }
+
+        final boolean expired = !scheduled && !jedis.hexists(key, SERVER_NAME_FIELD);
+        final boolean full = scheduled || expired;
+        final long sequence = this.sequence + 1;
+        document.append("seq", sequence);
+
+        final RecordFormat format = plugin.getRedis().getRecordFormat();
+        final Map<String, String> fields = InstanceRecords.toFields(document);
+        final Set<String> players = new HashSet<>(document.getList("players", String.class));
+        final Map<String, Document> integrations = new HashMap<>();
+        document.get("integrations", Document.class).forEach((id, data) -> integrations.put(id, (Document) data));
+
+        // Work out what changed.
+        final Map<byte[], byte[]> changedFields = new HashMap<>();
+        final List<byte[]> removedFields = new ArrayList<>();
+        final Document delta = full ? document.append("full", true) : new Document("serverName", this.name);
+
+        for(final Map.Entry<String, String> field : fields.entrySet()) {
+            if(full || !field.getValue().equals(this.savedFields.get(field.getKey()))) {
+                changedFields.put(field.getKey().getBytes(StandardCharsets.UTF_8), field.getValue().getBytes(StandardCharsets.UTF_8));
+                delta.append(field.getKey(), document.get(field.getKey()));
+            }
+        }
+
+        final Document changedIntegrations = new Document();
+        for(final Map.Entry<String, Document> integration : integrations.entrySet()) {
+            if(full || !integration.getValue().equals(this.savedIntegrations.get(integration.getKey()))) {
+                changedFields.put((InstanceRecords.INTEGRATION_PREFIX + integration.getKey()).getBytes(StandardCharsets.UTF_8), format.encode(integration.getValue()));
+                changedIntegrations.append(integration.getKey(), integration.getValue());
+            }
+        }
+
+        final List<String> addedPlayers = new ArrayList<>();
+        final List<String> removedPlayers = new ArrayList<>();
+        if(!full) {
+            // Removed integrations are sent as empty documents.
+            for(final String integration : this.savedIntegrations.keySet()) {
+                if(!integrations.containsKey(integration)) {
+                    removedFields.add((InstanceRecords.INTEGRATION_PREFIX + integration).getBytes(StandardCharsets.UTF_8));
+                    changedIntegrations.append(integration, new Document());
+                }
+            }
+
+            players.stream().filter(player -> !this.savedPlayers.contains(player)).forEach(addedPlayers::add);
+            this.savedPlayers.stream().filter(player -> !players.contains(player)).forEach(removedPlayers::add);
+
+            if(!changedIntegrations.isEmpty()) {
+                delta.append("integrations", changedIntegrations);
+            }
+
+            if(!addedPlayers.isEmpty()) {
+                delta.append("playersAdded", addedPlayers);
+            }
+
+            if(!removedPlayers.isEmpty()) {
+                delta.append("playersRemoved", removedPlayers);
+            }
+        }
+        else {
+            addedPlayers.addAll(players);
+        }
+
+        // Tags that were added or removed, so the tag index sets can be kept up to date.
+        final List<String> tags = document.getList("tags", String.class);
+        final String savedTags = this.savedFields.getOrDefault("tags", "");
+        final List<String> oldTags = savedTags.isEmpty() ? List.of() : Arrays.asList(savedTags.split(","));
+        final List<String> addedTags = tags.stream().filter(tag -> full || !oldTags.contains(tag)).toList();
+        final List<String> removedTags = oldTags.stream().filter(tag -> !tags.contains(tag)).toList();
+
+        if(expired) {
+            jedis.unwatch();
+            plugin.getLogger().warning("Instance record expired! Saving all of it again.");
+        }
+
+        // Applied all at once, so readers never see half of a heartbeat.
+        final Transaction transaction = jedis.multi();
+
+        // Start over, which also replaces records saved by older versions.
+        if(full) {
+            transaction.del(key);
+            transaction.del(playersKey);
+        }
+
+        transaction.hset(key, changedFields);
+
+        if(!removedFields.isEmpty()) {
+            transaction.hdel(key, removedFields.toArray(byte[][]::new));
+        }
+
+        if(!addedPlayers.isEmpty()) {
+            transaction.sadd(playersKey, addedPlayers.toArray(String[]::new));
+        }
+
+        if(!removedPlayers.isEmpty()) {
+            transaction.srem(playersKey, removedPlayers.toArray(String[]::new));
+        }
+
+        // Keeps the instance alive. If heartbeats stop, the instance expires once the grace period is over.
+        transaction.expire(key, this.ttl);
+        transaction.expire(playersKey, this.ttl);
+
+        // Makes sure the instance is in the instance index.
+        transaction.sadd("jadedsync:index:servers", this.name);
+
+        for(final String tag : addedTags) {
+            transaction.sadd(InstanceRecords.tagKey(tag), this.name);
+        }
+
+        for(final String tag : removedTags) {
+            transaction.srem(InstanceRecords.tagKey(tag), this.name);
+        }
+
+        // Send the changes to every server, so they can update their registries without reading the record back.
+        plugin.getRedis().publish(transaction, MessageChannels.NETWORK, new Message(MessageType.HEARTBEAT, format.encode(delta)));
+
+        // Nothing is written if the record expired after it was checked, so write all of it next time.
+        if(transaction.exec() == null) {
+            this.fullHeartbeatNeeded = true;
+            return;
+        }
+
+        // The proxies unregister expired instances, so they have to be told about the server again.
+        if(expired) {
+            plugin.getRedis().publish(MessageChannels.PROXY, new Message(MessageType.PROXY, "register", this.name));
+        }
+
+        this.savedFields = fields;
+        this.savedPlayers = players;
+        this.savedIntegrations = integrations;
+        this.sequence = sequence;
+        this.heartbeatsSinceFull = full ? 0 : this.heartbeatsSinceFull + 1;
+        this.fullHeartbeatNeeded = false;
+    }
+
+    /**
+     * Captures the parts of the instance that have to be read on the main thread.
+     * Kept as cheap as possible, since it runs every heartbeat.
+     * @return Snapshot of the instance.
+     */
+    private Snapshot snapshot() {
+        final Collection<? extends Player> onlinePlayers = plugin.getServer().getOnlinePlayers();
+        final UUID[] players = new UUID[onlinePlayers.size()];
+
+        int i = 0;
+        for(final Player player : onlinePlayers) {
+            players[i++] = player.getUniqueId();
+        }
+
+        return new Snapshot(getStatus(), players, getCapacity(), System.currentTimeMillis(), List.copyOf(this.tags));
+    }
+
+    /**
+     * Builds the document saved to Redis by each heartbeat, using the currently cached integration data.
+     * Must be called on the main thread.
+     * @return Document representing the instance.
+     */
+    public Document toDocument() {
+        return toDocument(this.snapshot());
+    }
+
+    /**
+     * Builds the document saved to Redis by each heartbeat from a snapshot, using the currently cached integration data.
+     * Safe to call from any thread.
+     * @param snapshot Snapshot of the instance.
+     * @return Document representing the instance.
+     */
+    private Document toDocument(@NotNull final Snapshot snapshot) {
         final Document document = new Document()
                 .append("serverName", name)
-                .append("status", getStatus().toString())
-                .append("online", getOnline())
-                .append("capacity", getCapacity())
-                .append("heartbeat", System.currentTimeMillis())
+                .append("status", snapshot.status().toString())
+                .append("online", snapshot.players().length)
+                .append("capacity", snapshot.capacity())
+                .append("heartbeat", snapshot.time())
                 .append("address", getAddress())
                 .append("port", getPort())
                 .append("startTime", getStartTime())
                 .append("majorVersion", this.majorVersion)
                 .append("minorVersion", this.minorVersion)
-                .append("tags", this.tags);
+                .append("tags", snapshot.tags());
 
         // Add all online players to the document.
-        final List<String> players = new ArrayList<>();
-        for(final Player player : plugin.getServer().getOnlinePlayers()) {
-            players.add(player.getUniqueId().toString());
+        final List<String> players = new ArrayList<>(snapshot.players().length);
+        for(final UUID player : snapshot.players()) {
+            players.add(player.toString());
         }
         document.append("players", players);
 
-        // Update integrations
-        this.updateIntegrations();
-
-
         // Store integrations.
         final Document integrationsDocument = new Document();
         // Get data saved from the integration.
-        for(final String integration : this.integrations.keySet()) {
-            final String json = this.integrations.get(integration);
-
+        for(final Map.Entry<String, Document> integration : this.integrations.entrySet()) {
             // Skip integrations that are empty.
-            if(json == null || json.isEmpty()) {
+            if(integration.getValue().isEmpty()) {
                 continue;
             }
 
-            final Document integrationDocument = Document.parse(json);
-            integrationsDocument.append(integration, integrationDocument);
+            integrationsDocument.append(integration.getKey(), integration.getValue());
         }
         document.append("integrations", integrationsDocument);
 
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            plugin.getRedis().set("jadedsync:servers:backend:" + this.name, document.toJson());
-        });
+        return document;
     }
 
     /**
@@ -285,6 +568,11 @@ public class CurrentInstance {
      */
     public void removeTag(@NotNull final String tag) {
         this.tags.remove(tag);
+
+        // Stop receiving messages sent to the tag, unless it was added more than once.
+        if(!this.tags.contains(tag) && plugin.getRedis().getSubscriber() != null) {
+            plugin.getRedis().getSubscriber().unsubscribe(MessageChannels.tag(tag));
+        }
     }
 
     /**
@@ -312,13 +600,23 @@ public class CurrentInstance {
         }
 
         // Updates the data saved by the integration.
-        this.integrations.put(integration, plugin.getIntegrationManager().getIntegration(integration).getServerIntegration(this));
+        this.integrations.put(integration, Objects.requireNonNullElse(plugin.getIntegrationManager().getIntegration(integration).getServerDocument(this), EMPTY));
     }
 
     /**
      * Updates the cached data for all integrations.
      */
     public void updateIntegrations() {
-        plugin.getIntegrationManager().getIntegrations().forEach(integration -> this.integrations.put(integration.getId(), integration.getServerIntegration(this)));
+        plugin.getIntegrationManager().getIntegrations().forEach(integration -> this.integrations.put(integration.getId(), Objects.requireNonNullElse(integration.getServerDocument(this), EMPTY)));
     }
-}
\ No newline at end of file
+
+    /**
+     * The parts of the instance captured on the main thread for a heartbeat.
+     * @param status Status of the instance.
+     * @param players UUIDs of the online players.
+     * @param capacity Maximum number of players.
+     * @param time Time (in ms since epoch) the snapshot was taken.
+     * @param tags Tags of the instance.
+     */
+    private record Snapshot(InstanceStatus status, UUID[] players, int capacity, long time, List<String> tags) {}
+}
@@ -25,8 +25,16 @@
 package net.jadedmc.jadedsync.api.server;
 
 import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
+import net.jadedmc.jadedsync.database.SingleFlight;
+import net.jadedmc.jadedsync.messaging.Message;
+import net.jadedmc.jadedsync.messaging.MessageChannels;
+import net.jadedmc.jadedsync.messaging.MessageType;
+import org.bson.Document;
 import org.jetbrains.annotations.NotNull;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.params.SetParams;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
@@ -37,7 +45,8 @@ import java.util.concurrent.CompletableFuture;
 public class InstanceMonitor {
     private final JadedSyncBukkitPlugin plugin;
     private final CurrentInstance currentInstance;
-    private int playerCount = 0;
+    private final InstanceRegistry registry;
+    private final SingleFlight<String, ServerInstance> instanceLookups = new SingleFlight<>();
 
     /**
      * Creates the InstanceMonitor.
@@ -46,85 +55,187 @@ public class InstanceMonitor {
     public InstanceMonitor(@NotNull final JadedSyncBukkitPlugin plugin) {
         this.plugin  = plugin;
         this.currentInstance = new CurrentInstance(plugin);
+        this.registry = new InstanceRegistry(plugin);
 
         // Heartbeat the current instance every 5 seconds.
         plugin.getServer().getScheduler().runTaskTimer(plugin, currentInstance::heartbeat, 0, 5*20);
 
         // Tell the proxies to register the server.
-        plugin.getServer().getScheduler().runTaskLater(plugin, () -> plugin.getRedis().publishAsync("jadedsync", "proxy register " + this.currentInstance.getName()), 20);
+        plugin.getServer().getScheduler().runTaskLater(plugin, () -> plugin.getRedis().publishAsync(MessageChannels.PROXY, new Message(MessageType.PROXY, "register", this.currentInstance.getName())), 20);
 
-        // Update player count every 30 seconds.
-        plugin.getServer().getScheduler().runTaskTimer(plugin, () -> {
-            getInstancesAsync().thenAccept(instances -> {
-                // Reset cached online count.
-                this.playerCount = 0;
+        // Look for instances that stopped sending heartbeats.
+        final long reapInterval = Math.max(1, plugin.getConfigManager().getConfig().getLong("Instances.reap-interval", 5L));
+        plugin.getServer().getScheduler().runTaskTimer(plugin, () -> plugin.getRedisExecutor().run(() -> reapExpired(reapInterval)), reapInterval * 20, reapInterval * 20);
+    }
+
+    /**
+     * Removes instances whose records expired from the instance index, and announces them to the network.
+     * Only one server does this each interval, decided by whoever takes the reaper lock first.
+     * <p><b>Warning: This is done on the thread this is called from. Should be used asynchronously.</b></p>
+     * @param interval How long (in seconds) to hold the reaper lock for.
+     */
+    private void reapExpired(final long interval) {
+        try(Jedis jedis = plugin.getRedis().getResource()) {
+            // Another server is already checking this interval.
+            if(jedis.set("jadedsync:reaper", this.currentInstance.getName(), SetParams.setParams().nx().ex(interval)) == null) {
+                return;
+            }
+
+            final List<String> names = new ArrayList<>(jedis.smembers("jadedsync:index:servers"));
+            removeExpired(jedis, findExpired(jedis, names));
+        }
+    }
+
+    /**
+     * Finds which instances no longer have a record.
+     * Records that exist but can't be read, such as ones still being written, are not included, so they are left to expire on their own.
+     * @param jedis Connection to use.
+     * @param names Names of the instances to check.
+     * @return Names of the instances whose records are gone.
+     */
+    private List<String> findExpired(@NotNull final Jedis jedis, @NotNull final List<String> names) {
+        final List<String> expired = new ArrayList<>();
+
+        if(names.isEmpty()) {
+            return expired;
+        }
+
+        final Pipeline pipeline = jedis.pipelined();
+        final List<Response<Boolean>> exists = new ArrayList<>(names.size());
+        names.forEach(name -> exists.add(pipeline.exists(InstanceRecords.key(name))));
+        pipeline.sync();
+
+        for(int i = 0; i < names.size(); i++) {
+            if(!exists.get(i).get()) {
+                expired.add(names.get(i));
+            }
+        }
+
+        return expired;
+    }
+
+    /**
+     * Removes instances that no longer exist from the instance index, and announces them to the network.
+     * Each instance is only announced by the server that removed it from the index, so it is only announced once.
+     * @param jedis Connection to use.
+     * @param names Names of the instances that no longer exist.
+     */
+    private void removeExpired(@NotNull final Jedis jedis, @NotNull final List<String> names) {
+        if(names.isEmpty()) {
+            return;
+        }
 
-                // Check every online instance.
-                for(final ServerInstance instance : instances) {
-                    this.playerCount += instance.getOnline();
+        final Pipeline pipeline = jedis.pipelined();
+        final List<Response<Long>> removed = new ArrayList<>(names.size());
+        names.forEach(name -> removed.add(pipeline.srem("jadedsync:index:servers", name)));
+        pipeline.sync();
+
+        for(int i = 0; i < names.size(); i++) {
+            if(removed.get(i).get() > 0) {
+                // The record is gone, so its tags are taken from the last known snapshot.
+                final ServerInstance instance = this.registry.get(names.get(i));
+                if(instance != null) {
+                    for(final String tag : instance.getTags()) {
+                        jedis.srem(InstanceRecords.tagKey(tag), instance.getName());
+                    }
                 }
-            });
-        },0, 30*20);
+
+                plugin.getRedis().publish(MessageChannels.NETWORK, new Message(MessageType.EXPIRE, names.get(i)));
+            }
+        }
     }
 
     /**
      * Mark an instance as closed.
+     * Only the instance being closed receives the message.
      * @param instance Instance to close.
      */
     public void closeInstance(@NotNull final ServerInstance instance) {
-        plugin.getRedis().publishAsync("jadedsync", "instance close " + instance.getName());
+        plugin.getRedis().publishAsync(MessageChannels.server(instance.getName()), new Message(MessageType.INSTANCE, "close", instance.getName()));
     }
 
     /**
      * Get all instances that contain a specific tag.
-     * <p><b>Warning: This is done on the thread this is called from. Should be used asynchronously.</b></p>
+     * Uses the registry's tag index, so it is safe to call from any thread.
      * @param tag Tag to get instances of.
      * @return All instances with that tag.
      */
     public Collection<ServerInstance> fromTag(@NotNull final String tag) {
-        return fromTags(Collections.singletonList(tag));
+        return this.registry.getTagged(tag);
     }
 
     /**
      * Get all instances that contain a specific tag.
+     * Already complete, since the instances come from the registry.
      * @param tag Tag to get instances of.
      * @return All instances with that tag.
      */
     public CompletableFuture<Collection<ServerInstance>> fromTagAsync(@NotNull final String tag) {
-        return CompletableFuture.supplyAsync(() -> fromTag(tag));
+        return CompletableFuture.completedFuture(fromTag(tag));
     }
 
     /**
-     * Get all instances that contain a collection of tags.
-     * <p><b>Warning: This is done on the thread this is called from. Should be used asynchronously.</b></p>
+     * Get all instances that contain at least one of a collection of tags.
      * @param tags Tags to get instances of.
-     * @return All instances with those tags.
+     * @return All instances with any of those tags.
      */
     public Collection<ServerInstance> fromTags(@NotNull final Collection<String> tags) {
-        final Collection<ServerInstance> instances = new HashSet<>();
+        return this.registry.getTaggedAny(tags);
+    }
 
-        // Loop through all online instances.
-        for(final ServerInstance instance : getInstances()) {
-            // As well as all provided tags.
-            for(final String tag : tags) {
-                // Add the instance if it contains one of those tags.
-                if(instance.hasTag(tag)) {
-                    instances.add(instance);
-                    break;
-                }
-            }
-        }
+    /**
+     * Get all instances that contain at least one of a collection of tags.
+     * Already complete, since the instances come from the registry.
+     * @param tags Tags to get instances of.
+     * @return All instances with any of those tags.
+     */
+    public CompletableFuture<Collection<ServerInstance>> fromTagsAsync(@NotNull final Collection<String> tags) {
+        return CompletableFuture.completedFuture(fromTags(tags));
+    }
 
-        return instances;
+    /**
+     * Get all instances that contain every tag in a collection.
+     * @param tags Tags to get instances of.
+     * @return All instances with all of those tags.
+     */
+    public Collection<ServerInstance> fromAllTags(@NotNull final Collection<String> tags) {
+        return this.registry.getTaggedAll(tags);
     }
 
     /**
-     * Get all instances that contain a collection of tags.
+     * Get all instances that contain every tag in a collection.
+     * Already complete, since the instances come from the registry.
      * @param tags Tags to get instances of.
-     * @return All instances with those tags.
+     * @return All instances with all of those tags.
      */
-    public CompletableFuture<Collection<ServerInstance>> fromTagsAsync(@NotNull final Collection<String> tags) {
-        return CompletableFuture.supplyAsync(() -> fromTags(tags));
+    public CompletableFuture<Collection<ServerInstance>> fromAllTagsAsync(@NotNull final Collection<String> tags) {
+        return CompletableFuture.completedFuture(fromAllTags(tags));
+    }
+
+    /**
+     * Loads instances with the given tags from Redis, skipping the registry.
+     * Uses the tag index sets, so only matching instances are read.
+     * <p><b>Warning: This is done on the thread this is called from. Should be used asynchronously.</b></p>
+     * @param tags Tags to get instances of.
+     * @param all Whether instances need every tag, instead of at least one.
+     * @return Collection of Instances.
+     */
+    public Collection<ServerInstance> loadFromTags(@NotNull final Collection<String> tags, final boolean all) {
+        final Collection<ServerInstance> instances = new HashSet<>();
+
+        if(tags.isEmpty()) {
+            return instances;
+        }
+
+        try(Jedis jedis = plugin.getRedis().getResource()) {
+            final String[] keys = tags.stream().map(InstanceRecords::tagKey).toArray(String[]::new);
+            final List<String> names = new ArrayList<>(all ? jedis.sinter(keys) : jedis.sunion(keys));
+
+            // Instances that expired since they were indexed are skipped.
+            InstanceRecords.load(jedis, names).values().forEach(document -> instances.add(new ServerInstance(document)));
+        }
+
+        return instances;
     }
 
     /**
@@ -137,41 +248,95 @@ public class InstanceMonitor {
 
     /**
      * Get an instance based on its name.
+     * Uses the registry, and only loads the instance from Redis if it has not been seen yet.
      * @param name Name of the instance.
      * @return Instance with that name.
      */
     public ServerInstance getInstance(@NotNull final String name) {
-        if(!plugin.getRedis().exists("jadedsync:servers:backend:" + name)) {
-            return null;
+        final ServerInstance instance = this.registry.get(name);
+        if(instance != null) {
+            return instance;
         }
 
-        return new ServerInstance(plugin.getRedis().get("jadedsync:servers:backend:" + name));
+        final ServerInstance loaded = loadInstance(name);
+        if(loaded != null) {
+            this.registry.update(loaded);
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Loads an instance from Redis, skipping the registry.
+     * <p><b>Warning: This is done on the thread this is called from. Should be used asynchronously.</b></p>
+     * @param name Name of the instance.
+     * @return Instance with that name, or null if it is not saved.
+     */
+    public ServerInstance loadInstance(@NotNull final String name) {
+        try(Jedis jedis = plugin.getRedis().getResource()) {
+            final Document document = InstanceRecords.load(jedis, name);
+
+            if(document == null) {
+                return null;
+            }
+
+            return new ServerInstance(document);
+        }
     }
 
     /**
      * Get an instance from its name, async.
-     * @param name Name of the instance.[l
+     * Concurrent lookups of the same instance share a single request.
+     * @param name Name of the instance.
      * @return Instance with that name.
      */
     public CompletableFuture<ServerInstance> getInstanceAsync(@NotNull final String name) {
-        return CompletableFuture.supplyAsync(() -> getInstance(name));
+        return instanceLookups.execute(name, () -> plugin.getRedisExecutor().supplyAsync(() -> getInstance(name)));
     }
 
     /**
      * Get a Collection of currently registered Instances.
-     * Warning: Does so on whatever thread it is called from.
+     * Returns the latest snapshots from the registry, so it is safe to call from any thread.
      * @return Collection of Instances.
      */
     public Collection<ServerInstance> getInstances() {
+        return this.registry.getAll();
+    }
+
+    /**
+     * Loads every registered Instance from Redis, skipping the registry.
+     * Reads the instance index set, then loads every instance in a single pipeline.
+     * Warning: Does so on whatever thread it is called from.
+     * @return Collection of Instances.
+     */
+    public Collection<ServerInstance> loadInstances() {
         Collection<ServerInstance> instances = new HashSet<>();
 
         // Get the Instances from Redis.
-        try(Jedis jedis = plugin.getRedis().jedisPool().getResource()) {
-            final Set<String> names = jedis.keys("jadedsync:servers:backend:*");
+        try(Jedis jedis = plugin.getRedis().getResource()) {
+            final List<String> names = new ArrayList<>(jedis.smembers("jadedsync:index:servers"));
+
+            // Exit if there are no instances to load.
+            if(names.isEmpty()) {
+                return instances;
+            }
+
+            final Map<String, Document> loaded = InstanceRecords.load(jedis, names);
+            final List<String> skipped = new ArrayList<>();
+
+            for(final String name : names) {
+                final Document document = loaded.get(name);
 
-            for(final String key : names) {
-                instances.add(new ServerInstance(jedis.get(key)));
+                // Remember instances that were not loaded, so the ones that no longer exist can be removed from the index.
+                if(document == null) {
+                    skipped.add(name);
+                    continue;
+                }
+
+                instances.add(new ServerInstance(document));
             }
+
+            removeExpired(jedis, findExpired(jedis, skipped));
         }
 
         return instances;
@@ -179,10 +344,11 @@ public class InstanceMonitor {
 
     /**
      * Get a collection of currently registered Instances, wrapped in a CompletableFuture.
+     * Already complete, since the instances come from the registry.
      * @return CompletableFuture with a Collection of Instances.
      */
     public CompletableFuture<Collection<ServerInstance>> getInstancesAsync() {
-        return CompletableFuture.supplyAsync(this::getInstances);
+        return CompletableFuture.completedFuture(getInstances());
     }
 
     /**
@@ -190,14 +356,30 @@ public class InstanceMonitor {
      * @return Current player count.
      */
     public int getPlayerCount() {
-        return this.playerCount;
+        int playerCount = 0;
+
+        // Check every known instance.
+        for(final ServerInstance instance : this.registry.getAll()) {
+            playerCount += instance.getOnline();
+        }
+
+        return playerCount;
     }
 
     /**
-     * Mark an instance as closed.
-     * @param instance Instance to close.
+     * Gets the registry holding the latest snapshot of every instance.
+     * @return Instance registry.
+     */
+    public InstanceRegistry getRegistry() {
+        return this.registry;
+    }
+
+    /**
+     * Mark an instance as open.
+     * Only the instance being opened receives the message.
+     * @param instance Instance to open.
      */
     public void openInstance(@NotNull final ServerInstance instance) {
-        plugin.getRedis().publishAsync("jadedsync", "instance open " + instance.getName());
+        plugin.getRedis().publishAsync(MessageChannels.server(instance.getName()), new Message(MessageType.INSTANCE, "open", instance.getName()));
     }
 }
\ No newline at end of file
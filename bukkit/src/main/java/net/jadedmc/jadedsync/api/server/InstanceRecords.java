@@ -0,0 +1,248 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.api.server;
+
+import net.jadedmc.jadedsync.database.RecordFormat;
+import org.bson.Document;
+import org.jetbrains.annotations.NotNull;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Reads and converts instance records stored in Redis.
+ * Instances are stored as a hash of their fields, with one field per integration, and a separate set of their online players.
+ * This lets heartbeats write only what changed. Records saved by older versions as a single value are still read.
+ * Records that are missing fields or can't be read are skipped, as if the instance did not exist.
+ */
+public class InstanceRecords {
+    public static final String INTEGRATION_PREFIX = "integration:";
+
+    // Fields that are stored as plain strings in the hash.
+    private static final List<String> INT_FIELDS = List.of("online", "capacity", "port", "majorVersion", "minorVersion");
+    private static final List<String> LONG_FIELDS = List.of("heartbeat", "startTime", "seq");
+    private static final List<String> STRING_FIELDS = List.of("serverName", "status", "address");
+
+    // Fields every complete record has. A record missing any of them was only partly written, such as a heartbeat landing after it expired.
+    private static final List<String> REQUIRED_FIELDS = List.of("serverName", "status", "address", "online", "capacity", "port", "majorVersion", "minorVersion", "heartbeat", "startTime", "tags");
+
+    /**
+     * Gets the Redis key an instance is stored under.
+     * @param name Name of the instance.
+     * @return Key of the instance's record.
+     */
+    public static String key(@NotNull final String name) {
+        return "jadedsync:servers:backend:" + name;
+    }
+
+    /**
+     * Gets the Redis key of the set holding an instance's online players.
+     * @param name Name of the instance.
+     * @return Key of the instance's player set.
+     */
+    public static String playersKey(@NotNull final String name) {
+        return "jadedsync:servers:players:" + name;
+    }
+
+    /**
+     * Gets the Redis key of the set holding the names of every instance with a tag.
+     * @param tag Tag of the instances.
+     * @return Key of the tag's instance set.
+     */
+    public static String tagKey(@NotNull final String tag) {
+        return "jadedsync:index:tags:" + tag;
+    }
+
+    /**
+     * Converts the fields of an instance document into hash fields.
+     * Players and integrations are not included, since they are stored separately.
+     * @param document Document representing the instance.
+     * @return Map of field names to their values.
+     */
+    public static Map<String, String> toFields(@NotNull final Document document) {
+        final Map<String, String> fields = new LinkedHashMap<>();
+
+        for(final String field : STRING_FIELDS) {
+            fields.put(field, String.valueOf(document.get(field)));
+        }
+
+        for(final String field : INT_FIELDS) {
+            fields.put(field, String.valueOf(document.get(field)));
+        }
+
+        for(final String field : LONG_FIELDS) {
+            if(document.containsKey(field)) {
+                fields.put(field, String.valueOf(document.get(field)));
+            }
+        }
+
+        // Tags are used in channel names, so they never contain commas.
+        fields.put("tags", String.join(",", document.getList("tags", String.class)));
+        return fields;
+    }
+
+    /**
+     * Loads a group of instances in a single round trip.
+     * @param jedis Connection to use.
+     * @param names Names of the instances to load.
+     * @return Map of every instance that exists to its document.
+     */
+    public static Map<String, Document> load(@NotNull final Jedis jedis, @NotNull final List<String> names) {
+        final Map<String, Document> instances = new HashMap<>();
+
+        if(names.isEmpty()) {
+            return instances;
+        }
+
+        final Pipeline pipeline = jedis.pipelined();
+        final List<Response<Map<byte[], byte[]>>> fieldResponses = new ArrayList<>(names.size());
+        final List<Response<Set<String>>> playerResponses = new ArrayList<>(names.size());
+        for(final String name : names) {
+            fieldResponses.add(pipeline.hgetAll(key(name).getBytes(StandardCharsets.UTF_8)));
+            playerResponses.add(pipeline.smembers(playersKey(name)));
+        }
+        pipeline.sync();
+
+        final List<String> legacy = new ArrayList<>();
+        for(int i = 0; i < names.size(); i++) {
+            try {
+                final Map<byte[], byte[]> fields = fieldResponses.get(i).get();
+
+                // Skip instances that do not exist.
+                if(fields.isEmpty()) {
+                    continue;
+                }
+
+                final Document document = toDocument(fields, playerResponses.get(i).get());
+                if(isComplete(document)) {
+                    instances.put(names.get(i), document);
+                }
+            }
+            catch(final JedisDataException exception) {
+                // Wrong type, so the record is still stored as a single value.
+                legacy.add(names.get(i));
+            }
+            catch(final RuntimeException exception) {
+                // Skip records that can't be read, so one bad record does not fail the whole batch.
+            }
+        }
+
+        if(legacy.isEmpty()) {
+            return instances;
+        }
+
+        final List<byte[]> values = jedis.mget(legacy.stream().map(name -> key(name).getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new));
+        for(int i = 0; i < legacy.size(); i++) {
+            if(values.get(i) == null) {
+                continue;
+            }
+
+            try {
+                final Document document = RecordFormat.decode(values.get(i));
+                if(isComplete(document)) {
+                    instances.put(legacy.get(i), document);
+                }
+            }
+            catch(final RuntimeException exception) {
+                // Skip records that can't be read, so one bad record does not fail the whole batch.
+            }
+        }
+
+        return instances;
+    }
+
+    /**
+     * Checks if an instance document has every field needed to create a ServerInstance.
+     * @param document Document representing the instance.
+     * @return true if the document is complete, false if fields are missing.
+     */
+    public static boolean isComplete(@NotNull final Document document) {
+        for(final String field : REQUIRED_FIELDS) {
+            if(document.get(field) == null) {
+                return false;
+            }
+        }
+
+        try {
+            InstanceStatus.valueOf(document.getString("status"));
+            return true;
+        }
+        catch(final IllegalArgumentException exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Loads a single instance.
+     * @param jedis Connection to use.
+     * @param name Name of the instance.
+     * @return Document representing the instance, or null if it does not exist.
+     */
+    public static Document load(@NotNull final Jedis jedis, @NotNull final String name) {
+        return load(jedis, List.of(name)).get(name);
+    }
+
+    /**
+     * Builds an instance document from its hash fields and online players.
+     * @param fields Fields of the instance's hash.
+     * @param players UUIDs of the instance's online players.
+     * @return Document representing the instance.
+     */
+    private static Document toDocument(@NotNull final Map<byte[], byte[]> fields, @NotNull final Set<String> players) {
+        final Document document = new Document();
+        final Document integrations = new Document();
+
+        for(final Map.Entry<byte[], byte[]> field : fields.entrySet()) {
+            final String key = new String(field.getKey(), StandardCharsets.UTF_8);
+
+            if(key.startsWith(INTEGRATION_PREFIX)) {
+                integrations.append(key.substring(INTEGRATION_PREFIX.length()), RecordFormat.decode(field.getValue()));
+                continue;
+            }
+
+            final String value = new String(field.getValue(), StandardCharsets.UTF_8);
+            if(INT_FIELDS.contains(key)) {
+                document.append(key, Integer.parseInt(value));
+            }
+            else if(LONG_FIELDS.contains(key)) {
+                document.append(key, Long.parseLong(value));
+            }
+            else if(key.equals("tags")) {
+                document.append(key, value.isEmpty() ? new ArrayList<String>() : new ArrayList<>(Arrays.asList(value.split(","))));
+            }
+            else {
+                document.append(key, value);
+            }
+        }
+
+        document.append("players", new ArrayList<>(players));
+        document.append("integrations", integrations);
+        return document;
+    }
+}
@@ -0,0 +1,315 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.api.server;
+
+import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
+import org.bson.Document;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the latest known snapshot of every instance on the network in memory.
+ * Updated by the heartbeat each instance broadcasts, so reading it never touches Redis.
+ * Every "Instances.reconcile-interval" seconds it is rebuilt from Redis, in case heartbeats were missed or instances shut down.
+ * Also keeps an index of which instances have each tag, so tag lookups only cost as much as their result.
+ */
+public class InstanceRegistry {
+    private final JadedSyncBukkitPlugin plugin;
+    private final Map<String, ServerInstance> instances = new ConcurrentHashMap<>();
+    private final Map<String, Set<String>> tags = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the registry.
+     * @param plugin Instance of the plugin.
+     */
+    public InstanceRegistry(@NotNull final JadedSyncBukkitPlugin plugin) {
+        this.plugin = plugin;
+
+        // Reconcile with Redis right away, and then periodically.
+        final long period = Math.max(1, plugin.getConfigManager().getConfig().getLong("Instances.reconcile-interval", 30L)) * 20;
+        plugin.getServer().getScheduler().runTaskTimer(plugin, () -> plugin.getRedisExecutor().run(this::reconcile), 0, period);
+    }
+
+    /**
+     * Stores a snapshot of an instance, unless a newer one is already known.
+     * @param instance Instance snapshot.
+     */
+    public void update(@NotNull final ServerInstance instance) {
+        this.instances.compute(instance.getName(), (name, current) -> {
+            if(current != null && instance.getLastHeartbeat() < current.getLastHeartbeat()) {
+                return current;
+            }
+
+            retag(name, current, instance);
+            return instance;
+        });
+    }
+
+    /**
+     * Applies the changes sent in an instance's heartbeat.
+     * If any earlier heartbeats were missed, the full instance is loaded from Redis instead.
+     * <p><b>Warning: May load from Redis on the thread this is called from. Should be used asynchronously.</b></p>
+     * @param delta Changes sent in the heartbeat.
+     */
+    public void apply(@NotNull final Document delta) {
+        final String name = delta.getString("serverName");
+        final long sequence = ((Number) delta.get("seq", 0L)).longValue();
+
+        // Full heartbeats contain the whole instance.
+        if(delta.getBoolean("full", false)) {
+            if(!InstanceRecords.isComplete(delta)) {
+                return;
+            }
+
+            final ServerInstance instance = new ServerInstance(delta);
+            this.instances.compute(name, (key, current) -> {
+                retag(key, current, instance);
+                return instance;
+            });
+            return;
+        }
+
+        final ServerInstance applied = this.instances.computeIfPresent(name, (key, current) -> {
+            if(current.getSequence() != sequence - 1) {
+                return current;
+            }
+
+            final ServerInstance updated = new ServerInstance(applyDelta(current.getDocument(), delta));
+            retag(key, current, updated);
+            return updated;
+        });
+
+        // Skip heartbeats that are older than what is already known.
+        if(applied != null && applied.getSequence() >= sequence) {
+            return;
+        }
+
+        // Some heartbeats were missed, so the changes can't be applied.
+        final ServerInstance loaded = plugin.getInstanceMonitor().loadInstance(name);
+        if(loaded != null) {
+            update(loaded);
+        }
+    }
+
+    /**
+     * Removes an instance from the registry.
+     * @param name Name of the instance.
+     */
+    public void remove(@NotNull final String name) {
+        this.instances.computeIfPresent(name, (key, current) -> {
+            retag(key, current, null);
+            return null;
+        });
+    }
+
+    /**
+     * Gets the latest snapshot of an instance.
+     * @param name Name of the instance.
+     * @return Instance snapshot, or null if the instance is not known.
+     */
+    public ServerInstance get(@NotNull final String name) {
+        return this.instances.get(name);
+    }
+
+    /**
+     * Gets the latest snapshot of every known instance.
+     * @return Unmodifiable collection of instance snapshots.
+     */
+    public Collection<ServerInstance> getAll() {
+        return Collections.unmodifiableCollection(new ArrayList<>(this.instances.values()));
+    }
+
+    /**
+     * Rebuilds the registry from the instances saved in Redis.
+     * Instances that are no longer saved are removed, and any newer snapshots are kept.
+     * <p><b>Warning: This is done on the thread this is called from. Should be used asynchronously.</b></p>
+     */
+    public void reconcile() {
+        final Collection<ServerInstance> saved = plugin.getInstanceMonitor().loadInstances();
+        final Set<String> names = new HashSet<>();
+
+        for(final ServerInstance instance : saved) {
+            names.add(instance.getName());
+            update(instance);
+        }
+
+        for(final String name : this.instances.keySet()) {
+            if(!names.contains(name)) {
+                remove(name);
+            }
+        }
+    }
+
+    /**
+     * Gets every known instance with a tag.
+     * @param tag Tag of the instances.
+     * @return Collection of instance snapshots.
+     */
+    public Collection<ServerInstance> getTagged(@NotNull final String tag) {
+        return resolve(this.tags.getOrDefault(tag, Collections.emptySet()));
+    }
+
+    /**
+     * Gets every known instance with at least one of a collection of tags.
+     * @param tags Tags of the instances.
+     * @return Collection of instance snapshots.
+     */
+    public Collection<ServerInstance> getTaggedAny(@NotNull final Collection<String> tags) {
+        final Set<String> names = new HashSet<>();
+
+        for(final String tag : tags) {
+            names.addAll(this.tags.getOrDefault(tag, Collections.emptySet()));
+        }
+
+        return resolve(names);
+    }
+
+    /**
+     * Gets every known instance with all of a collection of tags.
+     * Starts from the smallest tag, so only instances that could match are checked.
+     * @param tags Tags of the instances.
+     * @return Collection of instance snapshots.
+     */
+    public Collection<ServerInstance> getTaggedAll(@NotNull final Collection<String> tags) {
+        if(tags.isEmpty()) {
+            return getAll();
+        }
+
+        final List<Set<String>> sets = new ArrayList<>(tags.size());
+        for(final String tag : tags) {
+            sets.add(this.tags.getOrDefault(tag, Collections.emptySet()));
+        }
+        sets.sort(Comparator.comparingInt(Set::size));
+
+        final Set<String> names = new HashSet<>(sets.get(0));
+        for(int i = 1; i < sets.size() && !names.isEmpty(); i++) {
+            names.retainAll(sets.get(i));
+        }
+
+        return resolve(names);
+    }
+
+    /**
+     * Looks up the snapshots of a group of instances, skipping any that were removed in the meantime.
+     * @param names Names of the instances.
+     * @return Unmodifiable collection of instance snapshots.
+     */
+    private Collection<ServerInstance> resolve(@NotNull final Collection<String> names) {
+        final List<ServerInstance> resolved = new ArrayList<>(names.size());
+
+        for(final String name : names) {
+            final ServerInstance instance = this.instances.get(name);
+
+            if(instance != null) {
+                resolved.add(instance);
+            }
+        }
+
+        return Collections.unmodifiableList(resolved);
+    }
+
+    /**
+     * Moves an instance between tags in the tag index.
+     * Only called while the instance's entry is being computed, so changes to the same instance never overlap.
+     * @param name Name of the instance.
+     * @param previous Snapshot being replaced, or null if there was none.
+     * @param updated Snapshot replacing it, or null if the instance is being removed.
+     */
+    private void retag(@NotNull final String name, final ServerInstance previous, final ServerInstance updated) {
+        final Collection<String> oldTags = previous == null ? Collections.emptyList() : previous.getTags();
+        final Collection<String> newTags = updated == null ? Collections.emptyList() : updated.getTags();
+
+        // Tags rarely change, so most heartbeats stop here.
+        if(oldTags.equals(newTags) && previous != null && updated != null) {
+            return;
+        }
+
+        for(final String tag : oldTags) {
+            if(!newTags.contains(tag)) {
+                this.tags.computeIfPresent(tag, (key, names) -> {
+                    names.remove(name);
+                    return names.isEmpty() ? null : names;
+                });
+            }
+        }
+
+        for(final String tag : newTags) {
+            this.tags.compute(tag, (key, names) -> {
+                final Set<String> updatedNames = names == null ? ConcurrentHashMap.newKeySet() : names;
+                updatedNames.add(name);
+                return updatedNames;
+            });
+        }
+    }
+
+    /**
+     * Builds a new instance document, with the changes from a heartbeat applied to it.
+     * The original document is left untouched, since older snapshots may still be in use.
+     * @param base Document of the last known snapshot.
+     * @param delta Changes sent in the heartbeat.
+     * @return Updated document.
+     */
+    private static Document applyDelta(@NotNull final Document base, @NotNull final Document delta) {
+        final Document updated = new Document(base);
+
+        for(final Map.Entry<String, Object> field : delta.entrySet()) {
+            switch(field.getKey()) {
+                case "playersAdded", "playersRemoved", "integrations" -> {}
+                default -> updated.put(field.getKey(), field.getValue());
+            }
+        }
+
+        // Players that joined or left.
+        final List<String> added = delta.getList("playersAdded", String.class, Collections.emptyList());
+        final List<String> removed = delta.getList("playersRemoved", String.class, Collections.emptyList());
+        if(!added.isEmpty() || !removed.isEmpty()) {
+            final Set<String> players = new LinkedHashSet<>(base.getList("players", String.class));
+            players.removeAll(removed);
+            players.addAll(added);
+            updated.put("players", new ArrayList<>(players));
+        }
+
+        // Integrations that changed. Empty ones were removed.
+        final Document integrations = delta.get("integrations", Document.class);
+        if(integrations != null) {
+            final Document merged = new Document(base.get("integrations", Document.class));
+            for(final String integration : integrations.keySet()) {
+                final Document data = integrations.get(integration, Document.class);
+
+                if(data.isEmpty()) {
+                    merged.remove(integration);
+                }
+                else {
+                    merged.put(integration, data);
+                }
+            }
+            updated.put("integrations", merged);
+        }
+
+        return updated;
+    }
+}
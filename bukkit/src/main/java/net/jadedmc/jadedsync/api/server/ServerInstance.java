@@ -43,15 +43,21 @@ public class ServerInstance {
     private final String address;
     private final int port;
     private final long startTime;
-    private final List<UUID> players = new ArrayList<>();
-    private final Map<String, String> integrations = new HashMap<>();
+    private final long sequence;
+    private static final Document EMPTY = new Document();
+    private final Document document;
     private final Collection<String> tags;
 
+    // Decoded the first time they are accessed, since most callers only need the header fields.
+    private volatile List<UUID> players;
+    private volatile Map<String, Document> integrations;
+
     /**
      * Creates an instance with a given BSON document.
      * @param document Document to create instance with.
      */
     public ServerInstance(@NotNull final Document document) {
+        this.document = document;
         this.name = document.getString("serverName");
         this.online = document.getInteger("online");
         this.capacity = document.getInteger("capacity");
@@ -61,13 +67,10 @@ public class ServerInstance {
         this.port = document.getInteger("port");
         this.lastHeartbeat = document.getLong("heartbeat");
         this.startTime = document.getLong("startTime");
+        this.sequence = ((Number) document.get("seq", 0L)).longValue();
         this.tags = document.getList("tags", String.class);
 
-        if((System.currentTimeMillis() - lastHeartbeat > 90000)) {
-            // If the server has not responded in 90 seconds, mark it as unresponsive.
-            this.status = InstanceStatus.UNRESPONSIVE;
-        }
-        else if(capacity == online) {
+        if(capacity == online) {
             // If the server is at capacity, mark it as full.
             this.status = InstanceStatus.FULL;
         }
@@ -75,17 +78,6 @@ public class ServerInstance {
             // Otherwise, read the status from the document.
             this.status = InstanceStatus.valueOf(document.getString("status"));
         }
-
-        // Load online players.
-        for(final String uuid : document.getList("players", String.class)) {
-            players.add(UUID.fromString(uuid));
-        }
-
-        // Load integrations.
-        final Document integrationsDocument = document.get("integrations", Document.class);
-        for(final String integration : integrationsDocument.keySet()) {
-            this.integrations.put(integration, integrationsDocument.get(integration, Document.class).toJson());
-        }
     }
 
     /**
@@ -118,7 +110,7 @@ public class ServerInstance {
      * @param integration ID of the integration to delete.
      */
     public void deleteIntegration(@NotNull final String integration) {
-        this.integrations.remove(integration);
+        this.getIntegrations().remove(integration);
     }
 
     /**
@@ -127,13 +119,36 @@ public class ServerInstance {
      * @return Json data.
      */
     public String getIntegration(@NotNull final String integration) {
-        if(this.integrations.containsKey(integration)) {
-            return this.integrations.get(integration);
+        final Map<String, Document> integrations = this.getIntegrations();
+        if(integrations.containsKey(integration)) {
+            return integrations.get(integration).toJson();
         }
 
         return "";
     }
 
+    /**
+     * Gets the data being cached by a given integration, as a BSON document.
+     * The returned document should not be modified.
+     * @param integration Integration to get the data of.
+     * @return Integration data, empty if there is none.
+     */
+    public Document getIntegrationDocument(@NotNull final String integration) {
+        return this.getIntegrations().getOrDefault(integration, EMPTY);
+    }
+
+    /**
+     * Gets a single value from the data being cached by a given integration.
+     * @param integration Integration to get the data of.
+     * @param key Key of the value.
+     * @param defaultValue Value to return if the integration or key does not exist.
+     * @return The value, or the default value.
+     * @param <T> Type of the value.
+     */
+    public <T> T getIntegrationValue(@NotNull final String integration, @NotNull final String key, @NotNull final T defaultValue) {
+        return getIntegrationDocument(integration).get(key, defaultValue);
+    }
+
     /**
      * Get the last time (in ms since epoch) that the Instance sent a heartbeat message.
      * @return Last time a heartbeat message was sent.
@@ -171,7 +186,25 @@ public class ServerInstance {
      * @return Players on the instance.
      */
     public List<UUID> getPlayers() {
-        return this.players;
+        List<UUID> players = this.players;
+
+        if(players == null) {
+            synchronized(this) {
+                players = this.players;
+
+                if(players == null) {
+                    // Load online players.
+                    players = new ArrayList<>();
+                    for(final String uuid : document.getList("players", String.class)) {
+                        players.add(UUID.fromString(uuid));
+                    }
+
+                    this.players = players;
+                }
+            }
+        }
+
+        return players;
     }
 
     /**
@@ -195,6 +228,12 @@ public class ServerInstance {
      * @return Instance Status.
      */
     public InstanceStatus getStatus() {
+        // Checked on every call, since instances are kept in the registry long after they are loaded.
+        // If the server has not responded in 90 seconds, mark it as unresponsive.
+        if(System.currentTimeMillis() - lastHeartbeat > 90000) {
+            return InstanceStatus.UNRESPONSIVE;
+        }
+
         return status;
     }
 
@@ -222,6 +261,24 @@ public class ServerInstance {
         return "1." + majorVersion + "." + minorVersion;
     }
 
+    /**
+     * Gets the sequence number of the heartbeat this snapshot is from.
+     * Used to tell whether a heartbeat's changes can be applied to it, or if some were missed.
+     * @return Heartbeat sequence number, 0 if the instance does not send one.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the document the instance was created from.
+     * Used to apply heartbeat changes. Must not be modified.
+     * @return Document representing the instance.
+     */
+    Document getDocument() {
+        return document;
+    }
+
     /**
      * Check if the instance has a given tag.
      * @param tag Tag to check.
@@ -230,4 +287,31 @@ public class ServerInstance {
     public boolean hasTag(@NotNull final String tag) {
         return this.tags.contains(tag);
     }
-}
\ No newline at end of file
+
+    /**
+     * Gets the integration data of the instance, decoding it the first time it is needed.
+     * @return Map of integration ids to their data.
+     */
+    private Map<String, Document> getIntegrations() {
+        Map<String, Document> integrations = this.integrations;
+
+        if(integrations == null) {
+            synchronized(this) {
+                integrations = this.integrations;
+
+                if(integrations == null) {
+                    // Load integrations.
+                    integrations = new HashMap<>();
+                    final Document integrationsDocument = document.get("integrations", Document.class);
+                    for(final String integration : integrationsDocument.keySet()) {
+                        integrations.put(integration, integrationsDocument.get(integration, Document.class));
+                    }
+
+                    this.integrations = integrations;
+                }
+            }
+        }
+
+        return integrations;
+    }
+}
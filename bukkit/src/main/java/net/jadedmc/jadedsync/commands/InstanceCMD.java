@@ -85,7 +85,7 @@ public class InstanceCMD extends AbstractCommand {
         }
 
         // If there is another argument, continue in another thread.
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getRedisExecutor().run(() -> {
             // Find the instance they are trying to close.
             final ServerInstance instance = plugin.getInstanceMonitor().getInstance(args[1]);
 
@@ -122,7 +122,7 @@ public class InstanceCMD extends AbstractCommand {
             instanceName = args[1];
         }
 
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getRedisExecutor().run(() -> {
             // Find the instance they are trying to open.
             final ServerInstance instance = plugin.getInstanceMonitor().getInstance(instanceName);
 
@@ -166,7 +166,7 @@ public class InstanceCMD extends AbstractCommand {
         }
 
         // If there is another argument, continue in another thread.
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getRedisExecutor().run(() -> {
             // Find the instance they are trying to open.
             final ServerInstance instance = plugin.getInstanceMonitor().getInstance(args[1]);
 
@@ -215,7 +215,7 @@ public class InstanceCMD extends AbstractCommand {
             instanceName = args[1];
         }
 
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getRedisExecutor().run(() -> {
             // Find the instance they are trying to open.
             final ServerInstance instance = plugin.getInstanceMonitor().getInstance(instanceName);
 
@@ -270,7 +270,7 @@ public class InstanceCMD extends AbstractCommand {
         }
 
         // Search for the instance in another thread.
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getRedisExecutor().run(() -> {
             final ServerInstance instance = plugin.getInstanceMonitor().getInstance(args[1]);
 
             // Makes sure the instance exists.
@@ -25,14 +25,29 @@
 package net.jadedmc.jadedsync.commands;
 
 import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
+import net.jadedmc.jadedsync.api.player.JadedSyncPlayer;
+import net.jadedmc.jadedsync.database.RecordFormat;
+import net.jadedmc.jadedsync.database.RedisExecutor;
+import net.jadedmc.jadedsync.database.RedisSubscriber;
 import net.jadedmc.jadedsync.gui.InstancesGUI;
 import net.jadedmc.jadedsync.gui.PlayersGUI;
+import net.jadedmc.jadedsync.messaging.MessageType;
+import net.jadedmc.jadedsync.utils.chat.ChatUtils;
+import net.jadedmc.jadedsync.utils.metrics.LatencyHistogram;
+import org.bson.Document;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import redis.clients.jedis.JedisPool;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class JadedSyncCMD extends AbstractCommand {
+    private static final int MAX_BENCHMARK_ITERATIONS = 100000;
     private final JadedSyncBukkitPlugin plugin;
+    private final AtomicBoolean benchmarkRunning = new AtomicBoolean(false);
 
     /**
      * Creates the command.
@@ -60,7 +75,103 @@ public class JadedSyncCMD extends AbstractCommand {
         switch(args[0].toLowerCase()) {
             case "instances", "servers" -> instancesCMD(sender);
             case "players", "online" -> playersCMD(sender);
+            case "stats" -> statsCMD(sender);
+            case "benchmark" -> benchmarkCMD(sender, args);
+        }
+    }
+
+    /**
+     * Compares how quickly each record format encodes and decodes this server's records.
+     * Runs on its own thread, so it doesn't hold up Redis I/O, and only one benchmark can run at a time.
+     * Usage: /jadedsync benchmark [iterations]
+     * @param sender Command Sender.
+     * @param args Arguments of the command.
+     */
+    public void benchmarkCMD(@NotNull final CommandSender sender, @NotNull final String[] args) {
+        int iterations = 10000;
+        if(args.length > 1) {
+            try {
+                iterations = Math.max(1, Math.min(MAX_BENCHMARK_ITERATIONS, Integer.parseInt(args[1])));
+            }
+            catch(final NumberFormatException exception) {
+                ChatUtils.chat(sender, "<red>Iterations must be a number.");
+                return;
+            }
+        }
+
+        // Sample records are built on the main thread, since they read server state.
+        final Map<String, Document> samples = new LinkedHashMap<>();
+        samples.put("Instance", plugin.getInstanceMonitor().getCurrentInstance().toDocument());
+
+        for(final Player player : plugin.getServer().getOnlinePlayers()) {
+            final JadedSyncPlayer jadedSyncPlayer = plugin.getJadedSyncPlayerManager().getPlayer(player.getUniqueId());
+
+            if(jadedSyncPlayer != null) {
+                samples.put("Player", Document.parse(jadedSyncPlayer.toJson()));
+                break;
+            }
+        }
+
+        if(!benchmarkRunning.compareAndSet(false, true)) {
+            ChatUtils.chat(sender, "<red>A benchmark is already running.");
+            return;
         }
+
+        ChatUtils.chat(sender, "<primary>Running benchmark with <white>" + iterations + " <primary>iterations...");
+
+        final int count = iterations;
+        final Thread thread = new Thread(() -> {
+            try {
+                runBenchmark(sender, samples, count);
+            }
+            catch(final Exception exception) {
+                exception.printStackTrace();
+            }
+            finally {
+                benchmarkRunning.set(false);
+            }
+        }, "JadedSync Benchmark");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Encodes and decodes each sample record with every format, and reports the results.
+     * @param sender Command Sender.
+     * @param samples Sample records to benchmark.
+     * @param count Number of iterations.
+     */
+    private void runBenchmark(@NotNull final CommandSender sender, @NotNull final Map<String, Document> samples, final int count) {
+        ChatUtils.chat(sender, "");
+        ChatUtils.chat(sender, "<center><secondary><st>             </st> <primary><bold>JadedSync Benchmark</bold> <secondary><st>             </st>");
+
+        for(final Map.Entry<String, Document> sample : samples.entrySet()) {
+            for(final RecordFormat format : RecordFormat.values()) {
+                byte[] encoded = format.encode(sample.getValue());
+
+                // Warm up, so the results are not measuring class loading and the JIT.
+                for(int i = 0; i < Math.min(count, 1000); i++) {
+                    RecordFormat.decode(format.encode(sample.getValue()));
+                }
+
+                long start = System.nanoTime();
+                for(int i = 0; i < count; i++) {
+                    encoded = format.encode(sample.getValue());
+                }
+                final long encodeTime = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                for(int i = 0; i < count; i++) {
+                    RecordFormat.decode(encoded);
+                }
+                final long decodeTime = System.nanoTime() - start;
+
+                ChatUtils.chat(sender, "  <primary>" + sample.getKey() + " " + format + ": <white>" + encoded.length + " bytes<secondary>, <white>encode " + String.format("%.2f", encodeTime / 1000.0 / count) + "µs<secondary>, <white>decode " + String.format("%.2f", decodeTime / 1000.0 / count) + "µs");
+            }
+        }
+
+        ChatUtils.chat(sender, "  <primary>Current Format: <white>" + plugin.getRedis().getRecordFormat());
+        ChatUtils.chat(sender, "");
     }
 
     /**
@@ -72,6 +183,42 @@ public class JadedSyncCMD extends AbstractCommand {
         new InstancesGUI(plugin).open(player);
     }
 
+    /**
+     * Displays performance statistics, such as how busy the Redis I/O executor and connection pool are.
+     * @param sender Command Sender.
+     */
+    public void statsCMD(@NotNull final CommandSender sender) {
+        final RedisExecutor executor = plugin.getRedisExecutor();
+        final JedisPool pool = plugin.getRedis().jedisPool();
+        final RedisSubscriber subscriber = plugin.getRedis().getSubscriber();
+
+        ChatUtils.chat(sender, "");
+        ChatUtils.chat(sender, "<center><secondary><st>             </st> <primary><bold>JadedSync Stats</bold> <secondary><st>             </st>");
+        ChatUtils.chat(sender, "  <primary>Executor: <white>" + (executor.isVirtual() ? "Virtual Threads" : "Thread Pool"));
+        ChatUtils.chat(sender, "  <primary>Active: <white>" + executor.getActive() + " <primary>Queued: <white>" + executor.getQueued());
+        ChatUtils.chat(sender, "  <primary>Queue Time: <white>" + executor.getQueueTime().getSummary());
+        ChatUtils.chat(sender, "  <primary>Run Time: <white>" + executor.getRunTime().getSummary());
+        ChatUtils.chat(sender, "  <primary>Pool: <white>" + pool.getNumActive() + " active<secondary>, <white>" + pool.getNumIdle() + " idle<secondary>, <white>" + pool.getNumWaiters() + " waiting");
+        ChatUtils.chat(sender, "  <primary>Borrow Time: <white>" + plugin.getRedis().getBorrowTime().getSummary());
+        ChatUtils.chat(sender, "  <primary>Pub/Sub: <white>" + (subscriber.isConnected() ? "Connected" : "Disconnected") + " <primary>Reconnects: <white>" + subscriber.getReconnects());
+        ChatUtils.chat(sender, "  <primary>Last Outage: <white>" + subscriber.getLastDowntime() + "ms<secondary>, <white>" + (subscriber.getLastMissed() < 0 ? "missed messages not counted" : "up to " + subscriber.getLastMissed() + " messages lost"));
+        ChatUtils.chat(sender, "  <primary>Player Syncs: <white>" + plugin.getPlayerSyncQueue().getRequested() + " requested<secondary>, <white>" + plugin.getPlayerSyncQueue().getWritten() + " written<secondary>, <white>" + plugin.getPlayerSyncQueue().getConflicts() + " conflicts<secondary>, <white>" + plugin.getPlayerSyncQueue().getDropped() + " dropped");
+        ChatUtils.chat(sender, "  <primary>Main Thread Messages Queued: <white>" + plugin.getMessageDispatcher().getMainThreadQueued());
+        ChatUtils.chat(sender, "  <primary>Player Cache: <white>" + plugin.getPlayerCache().getSize() + " cached<secondary>, <white>" + plugin.getPlayerCache().getHits() + " hits<secondary>, <white>" + plugin.getPlayerCache().getMisses() + " misses<secondary>, <white>" + plugin.getPlayerCache().getEvictions() + " evictions");
+
+        // Per message type throughput and handling latency.
+        for(final MessageType type : MessageType.values()) {
+            final LatencyHistogram latency = plugin.getMessageDispatcher().getLatency(type);
+
+            if(latency.getCount() == 0) {
+                continue;
+            }
+
+            ChatUtils.chat(sender, "  <primary>" + type.getId() + ": <white>" + String.format("%.2f", plugin.getMessageDispatcher().getThroughput(type)) + "/s<secondary>, <white>" + latency.getSummary());
+        }
+        ChatUtils.chat(sender, "");
+    }
+
     /**
      * Opens a GUI showing all players online in the network.
      * @param sender Command Sender.
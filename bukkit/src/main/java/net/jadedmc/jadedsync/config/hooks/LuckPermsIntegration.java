@@ -28,6 +28,7 @@ import net.jadedmc.jadedsync.api.integration.Integration;
 import net.jadedmc.jadedsync.api.player.JadedSyncPlayer;
 import net.jadedmc.jadedsync.api.server.CurrentInstance;
 import net.luckperms.api.LuckPermsProvider;
+import org.bson.Document;
 import org.jetbrains.annotations.NotNull;
 
 public class LuckPermsIntegration extends Integration {
@@ -38,7 +39,12 @@ public class LuckPermsIntegration extends Integration {
 
     @Override
     public String getPlayerIntegration(@NotNull final JadedSyncPlayer player) {
-        return "{\"rank\": \"" + LuckPermsProvider.get().getUserManager().getUser(player.getUniqueId()).getPrimaryGroup() + "\"}";
+        return getPlayerDocument(player).toJson();
+    }
+
+    @Override
+    public Document getPlayerDocument(@NotNull final JadedSyncPlayer player) {
+        return new Document("rank", LuckPermsProvider.get().getUserManager().getUser(player.getUniqueId()).getPrimaryGroup());
     }
 
     @Override
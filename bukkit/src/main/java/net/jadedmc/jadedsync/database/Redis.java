@@ -24,21 +24,28 @@
  */
 package net.jadedmc.jadedsync.database;
 
-import com.google.common.io.ByteArrayDataOutput;
-import com.google.common.io.ByteStreams;
 import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
-import net.jadedmc.jadedsync.api.integration.Integration;
-import net.jadedmc.jadedsync.api.server.InstanceStatus;
-import net.jadedmc.jadedsync.utils.chat.ChatUtils;
-import org.apache.commons.lang3.StringUtils;
-import org.bukkit.Bukkit;
-import org.bukkit.entity.Player;
+import net.jadedmc.jadedsync.api.player.PlayerRecords;
+import net.jadedmc.jadedsync.api.server.CurrentInstance;
+import net.jadedmc.jadedsync.messaging.Message;
+import net.jadedmc.jadedsync.messaging.MessageChannels;
+import net.jadedmc.jadedsync.messaging.MessageCodec;
+import net.jadedmc.jadedsync.messaging.MessageType;
+import net.jadedmc.jadedsync.utils.metrics.LatencyHistogram;
+import org.bson.Document;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
-import redis.clients.jedis.JedisPubSub;
-
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Transaction;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
 
 /**
@@ -47,6 +54,10 @@ import java.util.*;
 public class Redis {
     private final JadedSyncBukkitPlugin plugin;
     private final JedisPool jedisPool;
+    private final LatencyHistogram borrowTime = new LatencyHistogram();
+    private final RecordFormat recordFormat;
+    private final boolean countMessages;
+    private RedisSubscriber subscriber;
 
     /**
      * Connects to Redis.
@@ -54,6 +65,8 @@ public class Redis {
      */
     public Redis(@NotNull final JadedSyncBukkitPlugin plugin) {
         this.plugin = plugin;
+        this.recordFormat = RecordFormat.fromName(plugin.getConfigManager().getConfig().getString("Storage.format", "json"));
+        this.countMessages = plugin.getConfigManager().getConfig().getBoolean("Redis.count-missed-messages", false);
 
         // Exit if Redis is not set up.
         if(!this.isSet()) {
@@ -61,8 +74,13 @@ public class Redis {
             return;
         }
 
+        // Bound the pool, so a lag spike can't open more connections than Redis allows.
         JedisPoolConfig jedisPoolConfig = new JedisPoolConfig();
-        jedisPoolConfig.setMaxTotal(Integer.MAX_VALUE);
+        jedisPoolConfig.setMaxTotal(plugin.getConfigManager().getConfig().getInt("Redis.pool.max-total", 32));
+        jedisPoolConfig.setMaxIdle(plugin.getConfigManager().getConfig().getInt("Redis.pool.max-idle", 16));
+        jedisPoolConfig.setMinIdle(plugin.getConfigManager().getConfig().getInt("Redis.pool.min-idle", 2));
+        jedisPoolConfig.setBlockWhenExhausted(true);
+        jedisPoolConfig.setMaxWait(Duration.ofMillis(plugin.getConfigManager().getConfig().getLong("Redis.pool.max-wait", 2000L)));
 
         String host = plugin.getConfigManager().getConfig().getString("Redis.host");
         int port = plugin.getConfigManager().getConfig().getInt("Redis.port");
@@ -71,7 +89,8 @@ public class Redis {
 
         jedisPool = new JedisPool(jedisPoolConfig, host, port, username, password);
 
-        subscribe();
+        // Index any keys that were saved before the index sets existed.
+        plugin.getRedisExecutor().run(this::migrateIndexes);
     }
 
     public boolean isSet() {
@@ -82,136 +101,314 @@ public class Redis {
         return jedisPool;
     }
 
-    public void publish(String channel,  String message) {
-        try(Jedis publisher = jedisPool.getResource()) {
+    /**
+     * Borrows a connection from the pool, recording how long it had to wait for one.
+     * @return Connection to Redis. Must be closed to return it to the pool.
+     */
+    public Jedis getResource() {
+        final long start = System.nanoTime();
+
+        try {
+            return jedisPool.getResource();
+        }
+        finally {
+            borrowTime.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Get how long it took to borrow connections from the pool.
+     * @return Borrow wait time histogram.
+     */
+    public LatencyHistogram getBorrowTime() {
+        return borrowTime;
+    }
+
+    /**
+     * Get the format new records are saved in.
+     * @return Configured record format.
+     */
+    public RecordFormat getRecordFormat() {
+        return recordFormat;
+    }
+
+    /**
+     * Publishes a message, encoded in the binary message format.
+     * @param channel Channel to publish the message in.
+     * @param message Message to publish.
+     */
+    public void publish(@NotNull final String channel, @NotNull final Message message) {
+        try(Jedis publisher = getResource()) {
+            if(!isCounted(message.getType())) {
+                publisher.publish(channel.getBytes(StandardCharsets.UTF_8), MessageCodec.encode(message));
+                return;
+            }
+
+            // Count the publish in the channel, so subscribers can tell how many messages they missed while disconnected.
+            final Pipeline pipeline = publisher.pipelined();
+            pipeline.incr(sequenceKey(channel));
+            pipeline.publish(channel.getBytes(StandardCharsets.UTF_8), MessageCodec.encode(message));
+            pipeline.sync();
+        }
+    }
+
+    /**
+     * Publishes a legacy space-delimited text message, such as "integration id data".
+     * Text that is a known message type is converted to the binary message format, and anything else is published as-is.
+     * @param channel Channel to publish the message in.
+     * @param message Text of the message.
+     * @deprecated Use {@link #publish(String, Message)} instead.
+     */
+    @Deprecated
+    public void publish(@NotNull final String channel, @NotNull final String message) {
+        final Message decoded = MessageCodec.decode(message.getBytes(StandardCharsets.UTF_8));
+
+        if(decoded != null) {
+            publish(channel, decoded);
+            return;
+        }
+
+        try(Jedis publisher = getResource()) {
             publisher.publish(channel, message);
         }
     }
 
+    /**
+     * Adds a message to an existing transaction, so it is published along with the transaction's other commands.
+     * @param transaction Transaction to publish the message in.
+     * @param channel Channel to publish the message in.
+     * @param message Message to publish.
+     */
+    public void publish(@NotNull final Transaction transaction, @NotNull final String channel, @NotNull final Message message) {
+        // Count the publish in the channel, so subscribers can tell how many messages they missed while disconnected.
+        if(isCounted(message.getType())) {
+            transaction.incr(sequenceKey(channel));
+        }
+
+        transaction.publish(channel.getBytes(StandardCharsets.UTF_8), MessageCodec.encode(message));
+    }
+
+    /**
+     * Checks if "Redis.count-missed-messages" is enabled, which counts publishes so missed messages can be estimated after reconnecting.
+     * Off by default, since counting adds a write to every publish.
+     * @return Whether publishes are counted.
+     */
+    public boolean isCountingMessages() {
+        return this.countMessages;
+    }
+
+    /**
+     * Checks if publishing a type of message increments its channel's publish sequence.
+     * Heartbeats are never counted, since they are the most frequent messages and carry their own sequence number.
+     * @param type Type of the message, or null if it is not known.
+     * @return Whether the message is counted.
+     */
+    public boolean isCounted(@Nullable final MessageType type) {
+        return this.countMessages && type != null && type != MessageType.HEARTBEAT;
+    }
+
+    /**
+     * Get the number of messages published through JadedSync so far, in each of a group of channels.
+     * @param channels Channels to check.
+     * @return Map of each channel to its current publish sequence.
+     */
+    public Map<String, Long> getPublishSequences(@NotNull final Collection<String> channels) {
+        final Map<String, Long> sequences = new HashMap<>();
+
+        if(channels.isEmpty()) {
+            return sequences;
+        }
+
+        final List<String> names = new ArrayList<>(channels);
+        try(Jedis jedis = getResource()) {
+            final List<String> values = jedis.mget(names.stream().map(Redis::sequenceKey).toArray(String[]::new));
+
+            for(int i = 0; i < names.size(); i++) {
+                sequences.put(names.get(i), values.get(i) == null ? 0 : Long.parseLong(values.get(i)));
+            }
+        }
+
+        return sequences;
+    }
+
+    /**
+     * Gets the key counting the messages published in a channel.
+     * Counted per channel, since each server only subscribes to some of them.
+     * @param channel Channel of the messages.
+     * @return Key of the channel's publish sequence.
+     */
+    private static String sequenceKey(@NotNull final String channel) {
+        return "jadedsync:pubsub:sequence:" + channel;
+    }
+
+    /**
+     * Publishes a message from the Redis executor.
+     * @param channel Channel to publish the message in.
+     * @param message Message to publish.
+     */
+    public void publishAsync(@NotNull final String channel, @NotNull final Message message) {
+        plugin.getRedisExecutor().run(() -> {
+            publish(channel, message);
+        });
+    }
+
+    /**
+     * Publishes a legacy space-delimited text message from the Redis executor.
+     * @param channel Channel to publish the message in.
+     * @param message Text of the message.
+     * @deprecated Use {@link #publishAsync(String, Message)} instead.
+     */
+    @Deprecated
     public void publishAsync(@NotNull final String channel, @NotNull final String message) {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getRedisExecutor().run(() -> {
             publish(channel, message);
         });
     }
 
     public void set(String key, String value) {
-        try(Jedis jedis = jedisPool.getResource()) {
+        try(Jedis jedis = getResource()) {
             jedis.set(key, value);
         }
     }
 
     public void sadd(String key, String value) {
-        try(Jedis jedis = jedisPool.getResource()) {
+        try(Jedis jedis = getResource()) {
             jedis.sadd(key, value);
         }
     }
 
+    public void srem(String key, String value) {
+        try(Jedis jedis = getResource()) {
+            jedis.srem(key, value);
+        }
+    }
+
     public void del(String key) {
-        try(Jedis jedis = jedisPool.getResource()) {
+        try(Jedis jedis = getResource()) {
             jedis.del(key);
         }
     }
 
     public boolean exists(@NotNull final String key) {
-        try(Jedis jedis = jedisPool.getResource()) {
+        try(Jedis jedis = getResource()) {
             return jedis.exists(key);
         }
     }
 
     public String get(@NotNull final String key) {
-        try(Jedis jedis = jedisPool.getResource()) {
+        try(Jedis jedis = getResource()) {
             return jedis.get(key);
         }
     }
 
+    public String hget(@NotNull final String key, @NotNull final String field) {
+        try(Jedis jedis = getResource()) {
+            return jedis.hget(key, field);
+        }
+    }
+
     public Set<String> keys(@NotNull final String pattern) {
-        try(Jedis jedis = jedisPool.getResource()) {
+        try(Jedis jedis = getResource()) {
             return jedis.keys(pattern);
         }
     }
 
-    public void subscribe() {
-        new Thread("Redis Subscriber") {
-            @Override
-            public void run() {
-
-                try (Jedis jedis = jedisPool.getResource()) {
-                    jedis.subscribe(new JedisPubSub() {
-                        @Override
-                        public void onMessage(String channel, String msg) {
-                            String[] args = msg.split(" ", 3);
-
-                            switch(args[0]) {
-                                case "instance" -> {
-                                    switch (args[1]) {
-                                        case "close" -> {
-                                            plugin.getInstanceMonitor().getCurrentInstance().setStatus(InstanceStatus.CLOSED);
-                                            return;
-                                        }
-
-                                        case "open" -> {
-                                            plugin.getInstanceMonitor().getCurrentInstance().setStatus(InstanceStatus.ONLINE);
-                                            return;
-                                        }
-                                    }
-
-                                    return;
-                                }
-
-                                case "connect" -> {
-                                    final Collection<UUID> uuids = new HashSet<>();
-
-                                    for(final String uuid : args[1].split(",")) {
-                                        uuids.add(UUID.fromString(uuid));
-                                    }
-
-                                    for(final UUID uuid : uuids) {
-                                        final Player player = Bukkit.getPlayer(uuid);
-
-                                        if(player == null) {
-                                            continue;
-                                        }
-
-                                        // Creates the message
-                                        ByteArrayDataOutput out = ByteStreams.newDataOutput();
-                                        out.writeUTF("Connect");
-                                        out.writeUTF(args[2]);
-
-                                        // Sends the message using the first player online.
-                                        player.sendPluginMessage(plugin, "BungeeCord", out.toByteArray());
-                                    }
-                                }
-
-                                case "integration" -> {
-                                    final Integration integration = plugin.getIntegrationManager().getIntegration(args[1]);
-
-                                    if(integration == null) {
-                                        return;
-                                    }
-
-                                    integration.onMessageReceive(args[2]);
-                                }
-
-                                case "message" -> {
-                                    final Collection<UUID> uuids = new HashSet<>();
-                                    String message = StringUtils.join(Arrays.copyOfRange(args, 2, args.length), " ");
-
-                                    for(final String uuid : args[1].split(",")) {
-                                        uuids.add(UUID.fromString(uuid));
-                                    }
-
-                                    for(UUID uuid : uuids) {
-                                        ChatUtils.chat(uuid, message);
-                                    }
-                                }
-                            }
-                        }
-                    }, "jadedsync");
-                }
-                catch (Exception exception) {
-                    exception.printStackTrace();
-                }
+    /**
+     * Adds player and instance keys saved before the index sets existed to those sets.
+     * Uses SCAN, so the keyspace is walked in small steps instead of blocking Redis like KEYS does.
+     * Only runs once per network, tracked by the "jadedsync:index:version" key, which is only set once the migration finishes.
+     * A short lock keeps servers starting at the same time from migrating at once. If a migration fails, the next server to start retries it.
+     */
+    public void migrateIndexes() {
+        try(Jedis jedis = getResource()) {
+            // Exit if the existing keys have already been migrated.
+            if(jedis.exists("jadedsync:index:version")) {
+                return;
+            }
+
+            // Exit if another instance is migrating the existing keys right now.
+            if(jedis.set("jadedsync:index:migrating", "1", SetParams.setParams().nx().ex(300)) == null) {
+                return;
+            }
+
+            try {
+                migrateIndex(jedis, "jadedsync:players:", "jadedsync:index:players");
+                migrateIndex(jedis, "jadedsync:servers:backend:", "jadedsync:index:servers");
+                migrateNames(jedis);
+
+                // Only marked as done once everything was migrated.
+                jedis.set("jadedsync:index:version", "1");
+            }
+            finally {
+                jedis.del("jadedsync:index:migrating");
             }
-        }.start();
+        }
+    }
+
+    /**
+     * Adds every indexed player to the username index.
+     * Players are loaded in batches, so no single MGET gets too large.
+     * @param jedis Connection to use.
+     */
+    private void migrateNames(@NotNull final Jedis jedis) {
+        final List<UUID> uuids = jedis.smembers("jadedsync:index:players").stream().map(UUID::fromString).toList();
+
+        for(int start = 0; start < uuids.size(); start += 1000) {
+            final List<UUID> batch = uuids.subList(start, Math.min(start + 1000, uuids.size()));
+
+            // Players that have since left are left out.
+            final Map<String, String> names = new HashMap<>();
+            PlayerRecords.getField(jedis, batch, "name").forEach((uuid, name) -> names.put(name.toLowerCase(Locale.ROOT), uuid.toString()));
+
+            if(!names.isEmpty()) {
+                jedis.hset("jadedsync:index:names", names);
+            }
+        }
+    }
+
+    /**
+     * Adds every key with a given prefix to an index set.
+     * The index stores the part of the key after the prefix.
+     * @param jedis Connection to use.
+     * @param prefix Prefix of the keys to index.
+     * @param index Set to add the keys to.
+     */
+    private void migrateIndex(@NotNull final Jedis jedis, @NotNull final String prefix, @NotNull final String index) {
+        final ScanParams params = new ScanParams().match(prefix + "*").count(1000);
+        String cursor = ScanParams.SCAN_POINTER_START;
+
+        do {
+            final ScanResult<String> result = jedis.scan(cursor, params);
+            cursor = result.getCursor();
+
+            final String[] members = result.getResult().stream().map(key -> key.substring(prefix.length())).toArray(String[]::new);
+            if(members.length > 0) {
+                jedis.sadd(index, members);
+            }
+        }
+        while(!cursor.equals(ScanParams.SCAN_POINTER_START));
+    }
+
+    /**
+     * Starts listening for messages addressed to the whole network, this server, or any of its tags.
+     * The subscriber reconnects on its own if the connection to Redis drops.
+     * @param instance The current instance, used to pick which channels to listen on.
+     */
+    public void subscribe(@NotNull final CurrentInstance instance) {
+        final List<String> channels = new ArrayList<>();
+        channels.add(MessageChannels.NETWORK);
+        channels.add(MessageChannels.server(instance.getName()));
+        instance.getTags().forEach(tag -> channels.add(MessageChannels.tag(tag)));
+
+        subscriber = new RedisSubscriber(this, plugin.getLogger(), plugin.getMessageDispatcher()::dispatch, channels.toArray(String[]::new));
+        subscriber.start();
+    }
+
+    /**
+     * Get the subscriber listening for pub/sub messages.
+     * @return Redis subscriber.
+     */
+    public RedisSubscriber getSubscriber() {
+        return subscriber;
     }
-}
\ No newline at end of file
+}
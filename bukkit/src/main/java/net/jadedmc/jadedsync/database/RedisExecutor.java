@@ -0,0 +1,226 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.database;
+
+import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
+import net.jadedmc.jadedsync.utils.metrics.LatencyHistogram;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs all of JadedSync's blocking I/O, so it never ends up on the common ForkJoinPool.
+ * Uses virtual threads when the server runs on Java 21 or newer, and a bounded thread pool otherwise.
+ */
+public class RedisExecutor implements Executor {
+    private final JadedSyncBukkitPlugin plugin;
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final LatencyHistogram queueTime = new LatencyHistogram();
+    private final LatencyHistogram runTime = new LatencyHistogram();
+
+    /**
+     * Creates the executor, using the settings in the config.yml.
+     * @param plugin Instance of the plugin.
+     */
+    public RedisExecutor(@NotNull final JadedSyncBukkitPlugin plugin) {
+        this.plugin = plugin;
+
+        final boolean useVirtualThreads = plugin.getConfigManager().getConfig().getBoolean("Executor.virtual-threads", true);
+        final int threads = plugin.getConfigManager().getConfig().getInt("Executor.threads", 8);
+        final int queueSize = plugin.getConfigManager().getConfig().getInt("Executor.queue-size", 10000);
+
+        final ExecutorService virtualExecutor = useVirtualThreads ? createVirtualExecutor() : null;
+
+        if(virtualExecutor != null) {
+            this.executor = virtualExecutor;
+            this.virtual = true;
+        }
+        else {
+            final AtomicInteger threadCount = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueSize), runnable -> {
+                final Thread thread = new Thread(runnable, "JadedSync I/O #" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.virtual = false;
+        }
+    }
+
+    /**
+     * Creates a virtual thread per task executor, if the JVM supports it.
+     * Done with reflection, since the plugin is compiled for Java 17.
+     * @return Virtual thread executor, or null if virtual threads are not available.
+     */
+    private static ExecutorService createVirtualExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch(ReflectiveOperationException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Runs a task on the executor, keeping track of how long it waited and ran for.
+     * @param task Task to run.
+     * @throws RejectedExecutionException If the queue is full.
+     */
+    @Override
+    public void execute(@NotNull final Runnable task) {
+        final long submitted = System.nanoTime();
+        this.queued.incrementAndGet();
+
+        try {
+            this.executor.execute(() -> {
+                final long started = System.nanoTime();
+                this.queued.decrementAndGet();
+                this.active.incrementAndGet();
+                this.queueTime.record(started - submitted);
+
+                try {
+                    task.run();
+                }
+                finally {
+                    this.active.decrementAndGet();
+                    this.runTime.record(System.nanoTime() - started);
+                }
+            });
+        }
+        catch(RejectedExecutionException exception) {
+            this.queued.decrementAndGet();
+            throw exception;
+        }
+    }
+
+    /**
+     * Runs a task asynchronously, without waiting for it.
+     * Exceptions, and tasks dropped because the queue is full, are logged to the console.
+     * @param task Task to run.
+     */
+    public void run(@NotNull final Runnable task) {
+        try {
+            execute(() -> {
+                try {
+                    task.run();
+                }
+                catch(Exception exception) {
+                    exception.printStackTrace();
+                }
+            });
+        }
+        catch(RejectedExecutionException exception) {
+            plugin.getLogger().warning("I/O queue is full! Dropping task.");
+        }
+    }
+
+    /**
+     * Runs a task asynchronously.
+     * If the queue is full, the returned future fails instead of the caller being blocked.
+     * @param task Task to run.
+     * @return CompletableFuture that completes when the task is done.
+     */
+    public CompletableFuture<Void> runAsync(@NotNull final Runnable task) {
+        try {
+            return CompletableFuture.runAsync(task, this);
+        }
+        catch(RejectedExecutionException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    /**
+     * Gets a value asynchronously.
+     * If the queue is full, the returned future fails instead of the caller being blocked.
+     * @param supplier Supplier of the value.
+     * @return CompletableFuture with the value.
+     */
+    public <T> CompletableFuture<T> supplyAsync(@NotNull final Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, this);
+        }
+        catch(RejectedExecutionException exception) {
+            return CompletableFuture.failedFuture(exception);
+        }
+    }
+
+    /**
+     * Get the number of tasks currently running.
+     * @return Active tasks.
+     */
+    public int getActive() {
+        return this.active.get();
+    }
+
+    /**
+     * Get the number of tasks waiting to start.
+     * @return Queue depth.
+     */
+    public int getQueued() {
+        return this.queued.get();
+    }
+
+    /**
+     * Get how long tasks waited in the queue before starting.
+     * @return Queue time histogram.
+     */
+    public LatencyHistogram getQueueTime() {
+        return this.queueTime;
+    }
+
+    /**
+     * Get how long tasks took to run.
+     * @return Run time histogram.
+     */
+    public LatencyHistogram getRunTime() {
+        return this.runTime;
+    }
+
+    /**
+     * Check if the executor is using virtual threads.
+     * @return true if virtual threads are used, false if it is a platform thread pool.
+     */
+    public boolean isVirtual() {
+        return this.virtual;
+    }
+
+    /**
+     * Stops accepting tasks, and waits a few seconds for queued ones to finish.
+     */
+    public void shutdown() {
+        this.executor.shutdown();
+
+        try {
+            this.executor.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,370 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.database;
+
+import net.jadedmc.jadedsync.messaging.MessageCodec;
+import org.jetbrains.annotations.NotNull;
+import redis.clients.jedis.BinaryJedisPubSub;
+import redis.clients.jedis.Jedis;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a Redis pub/sub subscription alive.
+ * If the connection drops, it reconnects with jittered exponential backoff and resubscribes to every channel.
+ * After reconnecting, it logs how long it was disconnected, and how many messages may have been missed.
+ * The connection is pinged every few seconds, so one that silently stopped delivering messages is reconnected as well.
+ */
+public class RedisSubscriber {
+    private static final long BASE_DELAY = 250;
+    private static final long MAX_DELAY = 30000;
+    private static final long PING_INTERVAL = 10000;
+    private final Redis redis;
+    private final Logger logger;
+    private final BiConsumer<String, byte[]> listener;
+    private final Set<String> channels = ConcurrentHashMap.newKeySet();
+    private final Map<String, AtomicLong> received = new ConcurrentHashMap<>();
+    private volatile BinaryJedisPubSub pubSub;
+    private volatile Jedis connection;
+    private volatile long lastPing = 0;
+    private volatile long lastPong = 0;
+    private ScheduledExecutorService watchdog;
+    private volatile boolean running = false;
+    private volatile boolean connected = false;
+    private Map<String, Long> subscribedSequences = Map.of();
+    private long disconnectedTime = 0;
+    private volatile int reconnects = 0;
+    private volatile long lastDowntime = 0;
+    private volatile long lastMissed = 0;
+
+    /**
+     * Creates the subscriber.
+     * @param redis Redis connection to borrow connections from.
+     * @param logger Logger to report disconnects to.
+     * @param listener Called with the channel and message of every message received.
+     * @param channels Channels to subscribe to.
+     */
+    public RedisSubscriber(@NotNull final Redis redis, @NotNull final Logger logger, @NotNull final BiConsumer<String, byte[]> listener, @NotNull final String... channels) {
+        this.redis = redis;
+        this.logger = logger;
+        this.listener = listener;
+        this.channels.addAll(Set.of(channels));
+    }
+
+    /**
+     * Starts the subscriber thread.
+     */
+    public void start() {
+        this.running = true;
+
+        final Thread thread = new Thread(this::run, "Redis Subscriber");
+        thread.setDaemon(true);
+        thread.start();
+
+        // Ping the connection, so a connection that died without closing is noticed.
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread watchdogThread = new Thread(runnable, "Redis Subscriber Watchdog");
+            watchdogThread.setDaemon(true);
+            return watchdogThread;
+        });
+        this.watchdog.scheduleWithFixedDelay(this::checkConnection, PING_INTERVAL, PING_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the subscriber, unsubscribing from all channels.
+     */
+    public void stop() {
+        this.running = false;
+
+        if(this.watchdog != null) {
+            this.watchdog.shutdownNow();
+        }
+
+        final BinaryJedisPubSub current = this.pubSub;
+        if(current != null && current.isSubscribed()) {
+            current.unsubscribe();
+        }
+    }
+
+    /**
+     * Subscribes and keeps resubscribing until the subscriber is stopped.
+     */
+    private void run() {
+        int attempt = 0;
+
+        while(this.running) {
+            try(Jedis jedis = redis.getResource()) {
+                this.connection = jedis;
+                final Set<String> initial = Set.copyOf(this.channels);
+                this.pubSub = createPubSub(initial);
+                jedis.subscribe(this.pubSub, initial.stream().map(RedisSubscriber::toBytes).toArray(byte[][]::new));
+            }
+            catch(Exception exception) {
+                // Only log the first failure, instead of every reconnect attempt.
+                if(this.running && (this.connected || attempt == 0)) {
+                    logger.warning("Lost connection to Redis pub/sub: " + exception.getMessage() + ". Reconnecting...");
+                }
+            }
+
+            this.connection = null;
+
+            // Remember when the connection was lost.
+            if(this.connected) {
+                this.connected = false;
+                this.disconnectedTime = System.currentTimeMillis();
+                attempt = 0;
+            }
+
+            if(!this.running) {
+                return;
+            }
+
+            try {
+                Thread.sleep(getBackoff(attempt++));
+            }
+            catch(InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Pings the connection, and closes it if the last ping was never answered.
+     * Closing it makes the subscriber thread reconnect, the same as if the connection had dropped.
+     */
+    private void checkConnection() {
+        final BinaryJedisPubSub current = this.pubSub;
+        final Jedis jedis = this.connection;
+
+        if(!this.connected || current == null || jedis == null) {
+            return;
+        }
+
+        try {
+            // The connection is still open, but Redis stopped answering.
+            if(this.lastPing > this.lastPong) {
+                logger.warning("Redis pub/sub did not answer a ping within " + PING_INTERVAL + "ms. Reconnecting...");
+                jedis.disconnect();
+                return;
+            }
+
+            this.lastPing = System.currentTimeMillis();
+            current.ping();
+        }
+        catch(Exception exception) {
+            jedis.disconnect();
+        }
+    }
+
+    /**
+     * Creates the BinaryJedisPubSub used for a single connection.
+     * @param initial Channels the connection subscribes to when it opens.
+     * @return New BinaryJedisPubSub.
+     */
+    private BinaryJedisPubSub createPubSub(@NotNull final Set<String> initial) {
+        return new BinaryJedisPubSub() {
+            @Override
+            public void onSubscribe(byte[] channel, int subscribedChannels) {
+                // Wait until every channel has been subscribed to.
+                if(subscribedChannels < initial.size() || connected) {
+                    return;
+                }
+
+                onConnect();
+
+                // Catch up on channels that were added or removed while connecting.
+                for(final String added : channels) {
+                    if(!initial.contains(added)) {
+                        subscribe(toBytes(added));
+                    }
+                }
+
+                for(final String removed : initial) {
+                    if(!channels.contains(removed)) {
+                        unsubscribe(toBytes(removed));
+                    }
+                }
+            }
+
+            @Override
+            public void onPong(byte[] pattern) {
+                lastPong = System.currentTimeMillis();
+            }
+
+            @Override
+            public void onMessage(byte[] channel, byte[] message) {
+                final String channelName = new String(channel, StandardCharsets.UTF_8);
+                // Only messages that were counted when published are compared against the channel's sequence.
+                if(redis.isCounted(MessageCodec.getType(message))) {
+                    received.computeIfAbsent(channelName, name -> new AtomicLong()).incrementAndGet();
+                }
+
+                // Don't let a bad message drop the connection.
+                try {
+                    listener.accept(channelName, message);
+                }
+                catch(Exception exception) {
+                    exception.printStackTrace();
+                }
+            }
+        };
+    }
+
+    /**
+     * Runs once all channels have been subscribed to.
+     * Reports how long the subscriber was disconnected for, if it was.
+     */
+    private void onConnect() {
+        final Map<String, Long> sequences = this.redis.isCountingMessages() ? this.redis.getPublishSequences(Set.copyOf(this.channels)) : Map.of();
+        this.lastPing = 0;
+        this.lastPong = 0;
+        this.connected = true;
+
+        if(this.disconnectedTime != 0) {
+            // Every publish increments its channel's sequence, so anything not received was published while disconnected.
+            // Channels subscribed to after connecting have no starting sequence, so they are left out.
+            long missed = 0;
+            for(final Map.Entry<String, Long> subscribed : this.subscribedSequences.entrySet()) {
+                final Long sequence = sequences.get(subscribed.getKey());
+                final AtomicLong channelReceived = this.received.get(subscribed.getKey());
+
+                if(sequence != null) {
+                    missed += Math.max(0, sequence - subscribed.getValue() - (channelReceived == null ? 0 : channelReceived.get()));
+                }
+            }
+
+            this.lastDowntime = System.currentTimeMillis() - this.disconnectedTime;
+            this.lastMissed = missed;
+            this.reconnects++;
+            this.disconnectedTime = 0;
+
+            // Without counting, how many messages were missed is unknown.
+            if(!this.redis.isCountingMessages()) {
+                this.lastMissed = -1;
+                logger.warning("Reconnected to Redis pub/sub after " + this.lastDowntime + "ms. Messages sent while disconnected may have been lost.");
+            }
+            else {
+                logger.warning("Reconnected to Redis pub/sub after " + this.lastDowntime + "ms. Up to " + this.lastMissed + " messages may have been lost.");
+            }
+        }
+
+        this.subscribedSequences = sequences;
+        this.received.clear();
+    }
+
+    /**
+     * Get how long to wait before the next reconnect attempt.
+     * Uses exponential backoff with jitter, so servers don't all reconnect at the same moment.
+     * @param attempt Number of failed attempts so far.
+     * @return Delay in milliseconds.
+     */
+    private static long getBackoff(final int attempt) {
+        final long delay = Math.min(MAX_DELAY, BASE_DELAY << Math.min(attempt, 16));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+    }
+
+    /**
+     * Subscribes to another channel.
+     * Is kept when resubscribing after a disconnect.
+     * @param channel Channel to subscribe to.
+     */
+    public void subscribe(@NotNull final String channel) {
+        if(!this.channels.add(channel)) {
+            return;
+        }
+
+        final BinaryJedisPubSub current = this.pubSub;
+        if(this.connected && current != null) {
+            current.subscribe(toBytes(channel));
+        }
+    }
+
+    /**
+     * Unsubscribes from a channel.
+     * @param channel Channel to unsubscribe from.
+     */
+    public void unsubscribe(@NotNull final String channel) {
+        if(!this.channels.remove(channel)) {
+            return;
+        }
+
+        final BinaryJedisPubSub current = this.pubSub;
+        if(this.connected && current != null) {
+            current.unsubscribe(toBytes(channel));
+        }
+    }
+
+    /**
+     * Converts a channel name to the bytes used by the binary pub/sub API.
+     * @param channel Channel name.
+     * @return Channel name as UTF-8 bytes.
+     */
+    private static byte[] toBytes(@NotNull final String channel) {
+        return channel.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Check if the subscriber is currently connected.
+     * @return Whether messages are being received.
+     */
+    public boolean isConnected() {
+        return this.connected;
+    }
+
+    /**
+     * Get how many times the subscriber has reconnected.
+     * @return Number of reconnects.
+     */
+    public int getReconnects() {
+        return this.reconnects;
+    }
+
+    /**
+     * Get how long the subscriber was disconnected for, the last time it reconnected.
+     * @return Downtime in milliseconds.
+     */
+    public long getLastDowntime() {
+        return this.lastDowntime;
+    }
+
+    /**
+     * Get how many messages may have been lost, the last time the subscriber reconnected.
+     * @return Estimated missed messages, or -1 if publishes are not being counted.
+     */
+    public long getLastMissed() {
+        return this.lastMissed;
+    }
+}
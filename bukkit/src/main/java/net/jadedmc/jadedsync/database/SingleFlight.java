@@ -0,0 +1,86 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.database;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent lookups of the same key into a single request.
+ * While a lookup is in flight, anyone asking for the same key waits on it instead of starting their own.
+ * Once it finishes, the next caller starts a fresh lookup, so results are never reused after the fact.
+ * @param <K> Type of the key being looked up.
+ * @param <V> Type of the result.
+ */
+public class SingleFlight<K, V> {
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Looks up a key, sharing the lookup with any other callers asking for the same key at the same time.
+     * @param key Key to look up.
+     * @param loader Starts the lookup. Only called if no lookup for the key is in flight.
+     * @return Future completed with the result. Each caller gets their own copy, so cancelling one does not affect the others.
+     */
+    public CompletableFuture<V> execute(@NotNull final K key, @NotNull final Supplier<CompletableFuture<V>> loader) {
+        final CompletableFuture<V> created = new CompletableFuture<>();
+        final CompletableFuture<V> existing = this.inFlight.putIfAbsent(key, created);
+
+        // Someone is already looking this key up.
+        if(existing != null) {
+            return existing.copy();
+        }
+
+        try {
+            loader.get().whenComplete((value, exception) -> {
+                this.inFlight.remove(key, created);
+
+                if(exception != null) {
+                    created.completeExceptionally(exception);
+                }
+                else {
+                    created.complete(value);
+                }
+            });
+        }
+        catch(final Exception exception) {
+            this.inFlight.remove(key, created);
+            created.completeExceptionally(exception);
+        }
+
+        return created.copy();
+    }
+
+    /**
+     * Get the number of keys currently being looked up.
+     * @return Number of lookups in flight.
+     */
+    public int getInFlight() {
+        return this.inFlight.size();
+    }
+}
@@ -47,7 +47,7 @@ public class PlayersGUI extends CustomGUI {
         super(54, "Network - Players");
         addFiller(0,1,2,3,4,5,6,7,8);
 
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getRedisExecutor().run(() -> {
             // Get all players and sort them by username.
             final TreeMap<String, JadedSyncPlayer> players = new TreeMap<>();
             for(final JadedSyncPlayer player : JadedSyncAPI.getPlayers().values()) {
@@ -27,6 +27,7 @@ package net.jadedmc.jadedsync.listeners;
 import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
 import net.jadedmc.jadedsync.api.JadedSyncAPI;
 import net.jadedmc.jadedsync.api.player.JadedSyncPlayer;
+import net.jadedmc.jadedsync.api.player.PlayerPrefetcher;
 import net.jadedmc.jadedsync.api.server.InstanceStatus;
 import net.jadedmc.jadedsync.utils.chat.ChatUtils;
 import org.bukkit.entity.Player;
@@ -61,6 +62,19 @@ public class PlayerJoinListener implements Listener {
             plugin.getInstanceMonitor().getCurrentInstance().setStatus(InstanceStatus.FULL);
         }
 
+        // The player is on this server now, so any location cached while they were elsewhere is out of date.
+        plugin.getPlayerLocator().invalidate(player.getUniqueId());
+
+        // Use the record loaded while the player was logging in, so they are ready as soon as they join.
+        final PlayerPrefetcher.Prefetched prefetched = plugin.getPlayerPrefetcher().take(player.getUniqueId());
+        if(prefetched != null) {
+            this.setup(player, prefetched.player());
+            return;
+        }
+
+        // Make sure a copy cached while the player was on another server is not used.
+        plugin.getPlayerCache().invalidate(player.getUniqueId());
+
         JadedSyncAPI.getPlayerAsync(player.getUniqueId()).whenComplete((jadedSyncPlayer, exception) -> {
            plugin.getServer().getScheduler().runTask(plugin, () -> {
 
@@ -70,21 +84,37 @@ public class PlayerJoinListener implements Listener {
                    return;
                }
 
-               // Creates a new player if they do not already exist.
-               if(jadedSyncPlayer == null) {
-                    final JadedSyncPlayer newPlayer = new JadedSyncPlayer(plugin, player);
-                    plugin.getJadedSyncPlayerManager().addPlayer(newPlayer);
-                    plugin.getIntegrationManager().getIntegrations().forEach(integration -> integration.onPlayerJoin(newPlayer));
-                    newPlayer.syncData();
-               }
-               // Loads player data if they do already exist.
-               else {
-                   plugin.getJadedSyncPlayerManager().addPlayer(jadedSyncPlayer);
-                   plugin.getIntegrationManager().getIntegrations().forEach(integration -> integration.onPlayerJoin(jadedSyncPlayer));
-                   jadedSyncPlayer.updateIntegrations();
-                   jadedSyncPlayer.syncData();
+               // Skip players who left before their data was loaded.
+               if(!player.isOnline()) {
+                   return;
                }
+
+               this.setup(player, jadedSyncPlayer);
            });
         });
     }
+
+    /**
+     * Caches a player that has joined, and sets up their integrations.
+     * @param player Player who joined.
+     * @param jadedSyncPlayer Their saved data, or null if they have never been saved.
+     */
+    private void setup(@NotNull final Player player, final JadedSyncPlayer jadedSyncPlayer) {
+        // Creates a new player if they do not already exist.
+        if(jadedSyncPlayer == null) {
+            final JadedSyncPlayer newPlayer = new JadedSyncPlayer(plugin, player);
+            plugin.getJadedSyncPlayerManager().addPlayer(newPlayer);
+            plugin.getIntegrationManager().getIntegrations().forEach(integration -> integration.onPlayerJoin(newPlayer));
+            newPlayer.syncData();
+            return;
+        }
+
+        // Loads player data if they do already exist.
+        // The saved record still points at the server the player came from.
+        jadedSyncPlayer.setServer(plugin.getInstanceMonitor().getCurrentInstance().getName());
+        plugin.getJadedSyncPlayerManager().addPlayer(jadedSyncPlayer);
+        plugin.getIntegrationManager().getIntegrations().forEach(integration -> integration.onPlayerJoin(jadedSyncPlayer));
+        jadedSyncPlayer.updateIntegrations();
+        jadedSyncPlayer.syncData();
+    }
 }
\ No newline at end of file
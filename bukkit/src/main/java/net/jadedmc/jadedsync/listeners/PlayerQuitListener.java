@@ -40,6 +40,9 @@ public class PlayerQuitListener implements Listener {
 
     @EventHandler
     public void onQuit(@NotNull final PlayerQuitEvent event) {
+        // Save any changes that are still waiting to be written, before the player joins another server.
+        plugin.getPlayerSyncQueue().flush(event.getPlayer().getUniqueId());
+
         // Remove the player from the local cache.
         plugin.getJadedSyncPlayerManager().removePlayer(event.getPlayer().getUniqueId());
 
@@ -0,0 +1,149 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.messaging;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Represents a message sent through Redis pub/sub.
+ */
+public class Message {
+    private final MessageType type;
+    private final List<UUID> players;
+    private final List<String> args;
+    private final byte[] payload;
+    private final long receivedTime;
+
+    /**
+     * Creates a message with no player recipients.
+     * @param type Type of the message.
+     * @param args Arguments of the message.
+     */
+    public Message(@NotNull final MessageType type, @NotNull final String... args) {
+        this(type, List.of(), List.of(args));
+    }
+
+    /**
+     * Creates a message addressed to a group of players.
+     * @param type Type of the message.
+     * @param players Players the message is for.
+     * @param args Arguments of the message.
+     */
+    public Message(@NotNull final MessageType type, @NotNull final Collection<UUID> players, @NotNull final String... args) {
+        this(type, List.copyOf(players), List.of(args));
+    }
+
+    /**
+     * Creates a message carrying binary data, such as an encoded record.
+     * @param type Type of the message.
+     * @param payload Binary data of the message.
+     */
+    public Message(@NotNull final MessageType type, final byte @NotNull [] payload) {
+        this(type, List.of(), List.of(), payload);
+    }
+
+    /**
+     * Creates the message.
+     * @param type Type of the message.
+     * @param players Players the message is for.
+     * @param args Arguments of the message.
+     */
+    public Message(@NotNull final MessageType type, @NotNull final List<UUID> players, @NotNull final List<String> args) {
+        this(type, players, args, new byte[0]);
+    }
+
+    /**
+     * Creates the message.
+     * @param type Type of the message.
+     * @param players Players the message is for.
+     * @param args Arguments of the message.
+     * @param payload Binary data of the message, empty if there is none.
+     */
+    public Message(@NotNull final MessageType type, @NotNull final List<UUID> players, @NotNull final List<String> args, final byte @NotNull [] payload) {
+        this.type = type;
+        this.players = players;
+        this.args = args;
+        this.payload = payload;
+        this.receivedTime = System.nanoTime();
+    }
+
+    /**
+     * Gets an argument of the message.
+     * @param index Index of the argument.
+     * @return The argument, or an empty String if it does not exist.
+     */
+    public String getArg(final int index) {
+        if(index >= this.args.size()) {
+            return "";
+        }
+
+        return this.args.get(index);
+    }
+
+    /**
+     * Gets all arguments of the message.
+     * @return Message arguments.
+     */
+    public List<String> getArgs() {
+        return this.args;
+    }
+
+    /**
+     * Gets the binary data of the message.
+     * Sent as-is, so it does not have to be converted to text.
+     * @return Binary data, empty if the message has none.
+     */
+    public byte[] getPayload() {
+        return this.payload;
+    }
+
+    /**
+     * Gets the players the message is addressed to.
+     * @return Player recipients, empty if the message is not for specific players.
+     */
+    public List<UUID> getPlayers() {
+        return this.players;
+    }
+
+    /**
+     * Get the time (from System.nanoTime()) that the message was created or received.
+     * @return Time the message was received.
+     */
+    public long getReceivedTime() {
+        return this.receivedTime;
+    }
+
+    /**
+     * Gets the type of the message.
+     * @return Message type.
+     */
+    public MessageType getType() {
+        return this.type;
+    }
+}
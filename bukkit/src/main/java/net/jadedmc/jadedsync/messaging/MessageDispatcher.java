@@ -0,0 +1,243 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.messaging;
+
+import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
+import net.jadedmc.jadedsync.utils.metrics.LatencyHistogram;
+import org.bukkit.scheduler.BukkitTask;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands pub/sub messages off the subscriber thread to their registered handler.
+ * Handlers either run on the Redis executor or are batched onto the main thread once per tick.
+ * Either way, messages of the same type are handled one at a time, in the order they were received.
+ */
+public class MessageDispatcher {
+    private final JadedSyncBukkitPlugin plugin;
+    private final Map<MessageType, Registration> handlers = new EnumMap<>(MessageType.class);
+    private final Map<MessageType, LatencyHistogram> latency = new EnumMap<>(MessageType.class);
+    private final Map<MessageType, Lane> lanes = new EnumMap<>(MessageType.class);
+    private final Queue<Runnable> mainThreadQueue = new ConcurrentLinkedQueue<>();
+    private final long startTime = System.nanoTime();
+    private final BukkitTask drainTask;
+
+    /**
+     * Creates the dispatcher and starts draining main thread messages.
+     * @param plugin Instance of the plugin.
+     */
+    public MessageDispatcher(@NotNull final JadedSyncBukkitPlugin plugin) {
+        this.plugin = plugin;
+
+        for(final MessageType type : MessageType.values()) {
+            latency.put(type, new LatencyHistogram());
+            lanes.put(type, new Lane());
+        }
+
+        this.drainTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this::drain, 1, 1);
+    }
+
+    /**
+     * Registers the handler for a message type, replacing any existing one.
+     * @param type Type of message to handle.
+     * @param handler Handler to process the message.
+     * @param mainThread Whether the handler needs to run on the main thread.
+     */
+    public void register(@NotNull final MessageType type, @NotNull final MessageHandler handler, final boolean mainThread) {
+        synchronized(handlers) {
+            handlers.put(type, new Registration(handler, mainThread));
+        }
+    }
+
+    /**
+     * Decodes a raw pub/sub message and passes it to its handler.
+     * Called from the subscriber thread, so does as little work as possible.
+     * @param channel Channel the message was sent in.
+     * @param data Message that was sent.
+     */
+    public void dispatch(@NotNull final String channel, final byte @NotNull [] data) {
+        final Message message = MessageCodec.decode(data);
+
+        if(message == null) {
+            return;
+        }
+
+        dispatch(message);
+    }
+
+    /**
+     * Passes a message to its handler.
+     * @param message Message to process.
+     */
+    public void dispatch(@NotNull final Message message) {
+        final Registration registration;
+        synchronized(handlers) {
+            registration = handlers.get(message.getType());
+        }
+
+        if(registration == null) {
+            return;
+        }
+
+        final Runnable task = () -> handle(registration.handler(), message);
+
+        if(registration.mainThread()) {
+            mainThreadQueue.add(task);
+        }
+        else {
+            lanes.get(message.getType()).add(task);
+        }
+    }
+
+    /**
+     * Runs a handler and records how long the message took to process since it was received.
+     * @param handler Handler to run.
+     * @param message Message to process.
+     */
+    private void handle(@NotNull final MessageHandler handler, @NotNull final Message message) {
+        try {
+            handler.handle(message);
+        }
+        catch (final Exception exception) {
+            exception.printStackTrace();
+        }
+        finally {
+            latency.get(message.getType()).record(System.nanoTime() - message.getReceivedTime());
+        }
+    }
+
+    /**
+     * Runs every main thread message that was received since the last tick.
+     */
+    private void drain() {
+        Runnable task;
+        while((task = mainThreadQueue.poll()) != null) {
+            task.run();
+        }
+    }
+
+    /**
+     * Gets the number of messages waiting for the next tick.
+     * @return Number of queued main thread messages.
+     */
+    public int getMainThreadQueued() {
+        return mainThreadQueue.size();
+    }
+
+    /**
+     * Gets the average number of messages of a type handled per second since startup.
+     * @param type Type of message.
+     * @return Messages per second.
+     */
+    public double getThroughput(@NotNull final MessageType type) {
+        final double seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startTime));
+        return latency.get(type).getCount() / seconds;
+    }
+
+    /**
+     * Gets the time from receiving a message of a type to finishing its handler.
+     * @param type Type of message.
+     * @return Handling latency histogram.
+     */
+    public LatencyHistogram getLatency(@NotNull final MessageType type) {
+        return latency.get(type);
+    }
+
+    /**
+     * Stops the main thread drain, running anything still queued first.
+     */
+    public void shutdown() {
+        drainTask.cancel();
+        drain();
+    }
+
+    /**
+     * Runs the handlers of a single message type on the Redis executor, one at a time and in order.
+     * Only one task per lane is on the executor at once, and it keeps going until the lane is empty.
+     */
+    private class Lane {
+        private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        /**
+         * Adds a handler to the end of the lane.
+         * @param task Handler to run.
+         */
+        private void add(@NotNull final Runnable task) {
+            queue.add(task);
+            schedule();
+        }
+
+        /**
+         * Starts draining the lane on the Redis executor, unless it is already being drained.
+         */
+        private void schedule() {
+            if(queue.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                return;
+            }
+
+            try {
+                plugin.getRedisExecutor().execute(this::drain);
+            }
+            catch(RejectedExecutionException exception) {
+                // Messages are kept, and handled once the next message of this type arrives.
+                scheduled.set(false);
+                plugin.getLogger().warning("I/O queue is full! Delaying messages.");
+            }
+        }
+
+        /**
+         * Runs every handler in the lane.
+         */
+        private void drain() {
+            try {
+                Runnable task;
+                while((task = queue.poll()) != null) {
+                    task.run();
+                }
+            }
+            finally {
+                scheduled.set(false);
+            }
+
+            // A message may have been added after the lane was found empty.
+            schedule();
+        }
+    }
+
+    /**
+     * Stores a handler alongside where it should run.
+     * @param handler Handler for the message type.
+     * @param mainThread Whether the handler runs on the main thread.
+     */
+    private record Registration(MessageHandler handler, boolean mainThread) {}
+}
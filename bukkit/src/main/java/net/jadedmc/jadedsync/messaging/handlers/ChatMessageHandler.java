@@ -0,0 +1,98 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.messaging.handlers;
+
+import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
+import net.jadedmc.jadedsync.messaging.Message;
+import net.jadedmc.jadedsync.messaging.MessageChannels;
+import net.jadedmc.jadedsync.messaging.MessageHandler;
+import net.jadedmc.jadedsync.messaging.MessageType;
+import net.jadedmc.jadedsync.utils.chat.ChatUtils;
+import net.kyori.adventure.text.Component;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Sends a chat message to any of its recipients on this server.
+ * Runs on the executor, so the message is only rendered once and off the main thread.
+ * <p>
+ * Messages are routed to the server a player was last seen on. If a routed message arrives after the
+ * player has moved, it is forwarded once to the server they are on now.
+ */
+public class ChatMessageHandler implements MessageHandler {
+    private final JadedSyncBukkitPlugin plugin;
+
+    /**
+     * Creates the handler.
+     * @param plugin Instance of the plugin.
+     */
+    public ChatMessageHandler(@NotNull final JadedSyncBukkitPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Processes a chat message.
+     * @param message Message that was received.
+     */
+    @Override
+    public void handle(@NotNull final Message message) {
+        final List<UUID> missing = new ArrayList<>();
+        Component component = null;
+
+        for(final UUID uuid : message.getPlayers()) {
+            final Player player = plugin.getServer().getPlayer(uuid);
+
+            if(player == null) {
+                missing.add(uuid);
+                continue;
+            }
+
+            // Only render the message if someone is here to receive it.
+            if(component == null) {
+                component = ChatUtils.translate(message.getArg(0));
+            }
+
+            player.sendMessage(component);
+        }
+
+        // Only forward routed messages, and only once.
+        if(missing.isEmpty() || !message.getArg(1).equals("0")) {
+            return;
+        }
+
+        final String currentServer = plugin.getInstanceMonitor().getCurrentInstance().getName();
+        plugin.getPlayerLocator().locate(missing, false).forEach((server, players) -> {
+            if(server.equals(currentServer)) {
+                return;
+            }
+
+            plugin.getRedis().publish(MessageChannels.server(server), new Message(MessageType.CHAT, players, message.getArg(0), "1"));
+        });
+    }
+}
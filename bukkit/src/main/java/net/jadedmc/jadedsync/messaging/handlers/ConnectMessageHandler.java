@@ -0,0 +1,74 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.messaging.handlers;
+
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
+import net.jadedmc.jadedsync.messaging.Message;
+import net.jadedmc.jadedsync.messaging.MessageHandler;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * Sends players on this server to another server through the proxy.
+ * Runs on the main thread, as plugin messages are sent through the player.
+ */
+public class ConnectMessageHandler implements MessageHandler {
+    private final JadedSyncBukkitPlugin plugin;
+
+    /**
+     * Creates the handler.
+     * @param plugin Instance of the plugin.
+     */
+    public ConnectMessageHandler(@NotNull final JadedSyncBukkitPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Processes a connect message.
+     * @param message Message that was received.
+     */
+    @Override
+    public void handle(@NotNull final Message message) {
+        // Creates the message
+        final ByteArrayDataOutput out = ByteStreams.newDataOutput();
+        out.writeUTF("Connect");
+        out.writeUTF(message.getArg(0));
+        final byte[] data = out.toByteArray();
+
+        for(final UUID uuid : message.getPlayers()) {
+            final Player player = plugin.getServer().getPlayer(uuid);
+
+            if(player == null) {
+                continue;
+            }
+
+            player.sendPluginMessage(plugin, "BungeeCord", data);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.messaging.handlers;
+
+import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
+import net.jadedmc.jadedsync.database.RecordFormat;
+import net.jadedmc.jadedsync.messaging.Message;
+import net.jadedmc.jadedsync.messaging.MessageHandler;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Updates the instance registry with the changes sent in an instance's heartbeat.
+ */
+public class HeartbeatMessageHandler implements MessageHandler {
+    private final JadedSyncBukkitPlugin plugin;
+
+    /**
+     * Creates the handler.
+     * @param plugin Instance of the plugin.
+     */
+    public HeartbeatMessageHandler(@NotNull final JadedSyncBukkitPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Processes a heartbeat message.
+     * @param message Message that was received.
+     */
+    @Override
+    public void handle(@NotNull final Message message) {
+        // Heartbeats carry the encoded changes as their payload.
+        if(message.getPayload().length == 0) {
+            return;
+        }
+
+        plugin.getInstanceMonitor().getRegistry().apply(RecordFormat.decode(message.getPayload()));
+    }
+}
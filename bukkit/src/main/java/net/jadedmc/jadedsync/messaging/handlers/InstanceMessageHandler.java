@@ -0,0 +1,64 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.messaging.handlers;
+
+import net.jadedmc.jadedsync.JadedSyncBukkitPlugin;
+import net.jadedmc.jadedsync.api.server.InstanceStatus;
+import net.jadedmc.jadedsync.messaging.Message;
+import net.jadedmc.jadedsync.messaging.MessageHandler;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Changes the status of the current instance.
+ * Must run on the main thread, as closing an instance can shut down the server.
+ */
+public class InstanceMessageHandler implements MessageHandler {
+    private final JadedSyncBukkitPlugin plugin;
+
+    /**
+     * Creates the handler.
+     * @param plugin Instance of the plugin.
+     */
+    public InstanceMessageHandler(@NotNull final JadedSyncBukkitPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Processes an instance message.
+     * @param message Message that was received.
+     */
+    @Override
+    public void handle(@NotNull final Message message) {
+        // Ignore messages for other instances, which older versions broadcast to the whole network.
+        if(!message.getArg(1).equals(plugin.getInstanceMonitor().getCurrentInstance().getName())) {
+            return;
+        }
+
+        switch (message.getArg(0)) {
+            case "close" -> plugin.getInstanceMonitor().getCurrentInstance().setStatus(InstanceStatus.CLOSED);
+            case "open" -> plugin.getInstanceMonitor().getCurrentInstance().setStatus(InstanceStatus.ONLINE);
+        }
+    }
+}
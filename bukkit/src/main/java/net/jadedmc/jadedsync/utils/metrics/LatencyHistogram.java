@@ -0,0 +1,142 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.utils.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records how long something takes, in fixed millisecond buckets.
+ * Recording is lock-free, so it is safe to use from any number of threads.
+ */
+public class LatencyHistogram {
+    private static final long[] BUCKETS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000};
+    private final LongAdder[] counts = new LongAdder[BUCKETS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Creates an empty histogram.
+     */
+    public LatencyHistogram() {
+        for(int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a single measurement.
+     * @param nanos Duration, in nanoseconds.
+     */
+    public void record(final long nanos) {
+        final long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+
+        int bucket = 0;
+        while(bucket < BUCKETS.length && millis >= BUCKETS[bucket]) {
+            bucket++;
+        }
+
+        this.counts[bucket].increment();
+        this.count.increment();
+        this.totalNanos.add(nanos);
+        this.maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Get the number of measurements recorded.
+     * @return Number of measurements.
+     */
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * Get the average of all measurements.
+     * @return Mean duration in milliseconds.
+     */
+    public double getMeanMillis() {
+        final long count = getCount();
+
+        if(count == 0) {
+            return 0;
+        }
+
+        return this.totalNanos.sum() / (double) count / 1_000_000;
+    }
+
+    /**
+     * Get the longest measurement recorded.
+     * @return Max duration in milliseconds.
+     */
+    public double getMaxMillis() {
+        return this.maxNanos.get() / 1_000_000.0;
+    }
+
+    /**
+     * Estimates a percentile, using the upper bound of the bucket it falls in.
+     * @param percentile Percentile to get, from 0 to 100.
+     * @return Upper bound in milliseconds. -1 if it falls in the overflow bucket.
+     */
+    public long getPercentileMillis(final double percentile) {
+        final long target = (long) Math.ceil(getCount() * percentile / 100);
+        long seen = 0;
+
+        for(int i = 0; i < BUCKETS.length; i++) {
+            seen += this.counts[i].sum();
+
+            if(seen >= target) {
+                return BUCKETS[i];
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Get a short summary of the histogram. Used in chat messages.
+     * @return Summary of the recorded measurements.
+     */
+    public @NotNull String getSummary() {
+        return String.format("n=%d mean=%.2fms p50<%s p99<%s max=%.2fms",
+                getCount(), getMeanMillis(), format(getPercentileMillis(50)), format(getPercentileMillis(99)), getMaxMillis());
+    }
+
+    /**
+     * Formats a bucket bound for display.
+     * @param bound Bucket bound in milliseconds.
+     * @return Formatted bound.
+     */
+    private static String format(final long bound) {
+        if(bound == -1) {
+            return "inf";
+        }
+
+        return bound + "ms";
+    }
+}
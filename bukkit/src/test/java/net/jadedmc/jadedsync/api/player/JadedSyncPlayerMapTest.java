@@ -0,0 +1,235 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.api.player;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for {@link JadedSyncPlayerMap}, mainly that the username index stays in sync with the players in the map.
+ */
+class JadedSyncPlayerMapTest {
+    private static final int WRITERS = 6;
+    private static final int READERS = 2;
+    private static final int OPERATIONS = 20000;
+    private static final int PLAYERS = 64;
+    private static final int NAMES = 16;
+    private static final int STABLE = 16;
+
+    @Test
+    void getByNameIgnoresCase() {
+        final JadedSyncPlayerMap map = new JadedSyncPlayerMap();
+        final JadedSyncPlayer player = player(UUID.randomUUID(), "Steve");
+        map.put(player.getUniqueId(), player);
+
+        assertSame(player, map.get("steve"));
+        assertTrue(map.contains("STEVE"));
+        assertTrue(map.contains(player.getUniqueId()));
+    }
+
+    @Test
+    void renameDropsOldName() {
+        final JadedSyncPlayerMap map = new JadedSyncPlayerMap();
+        final UUID uuid = UUID.randomUUID();
+        map.put(uuid, player(uuid, "Steve"));
+        map.put(uuid, player(uuid, "Alex"));
+
+        assertNull(map.get("Steve"));
+        assertEquals(uuid, map.get("Alex").getUniqueId());
+    }
+
+    @Test
+    void viewsUpdateNameIndex() {
+        final JadedSyncPlayerMap map = new JadedSyncPlayerMap();
+        final UUID first = UUID.randomUUID();
+        final UUID second = UUID.randomUUID();
+        final UUID third = UUID.randomUUID();
+        map.put(first, player(first, "Steve"));
+        map.put(second, player(second, "Alex"));
+        map.put(third, player(third, "Herobrine"));
+
+        map.values().removeIf(player -> player.getName().equals("Steve"));
+        map.keySet().remove(second);
+        map.entrySet().iterator().next().setValue(player(third, "Notch"));
+
+        assertNull(map.get("Steve"));
+        assertNull(map.get("Alex"));
+        assertNull(map.get("Herobrine"));
+        assertEquals(third, map.get("Notch").getUniqueId());
+        assertEquals(1, map.size());
+
+        map.clear();
+        assertNull(map.get("Notch"));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    void concurrentChangesKeepNameIndex() throws Exception {
+        final JadedSyncPlayerMap map = new JadedSyncPlayerMap();
+        final List<UUID> uuids = new ArrayList<>();
+        for(int i = 0; i < PLAYERS; i++) {
+            uuids.add(UUID.randomUUID());
+        }
+
+        // Players the writers never touch, so readers always have to find them.
+        final List<JadedSyncPlayer> stable = new ArrayList<>();
+        for(int i = 0; i < STABLE; i++) {
+            final UUID uuid = UUID.randomUUID();
+            final JadedSyncPlayer player = player(uuid, name(uuid, 0));
+            map.put(uuid, player);
+            stable.add(player);
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch writers = new CountDownLatch(WRITERS);
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+
+        for(int thread = 0; thread < WRITERS; thread++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                    for(int operation = 0; operation < OPERATIONS; operation++) {
+                        final UUID uuid = uuids.get(random.nextInt(PLAYERS));
+                        final JadedSyncPlayer player = player(uuid, name(uuid, random.nextInt(NAMES)));
+
+                        switch(random.nextInt(8)) {
+                            case 0 -> map.put(uuid, player);
+                            case 1 -> map.remove(uuid);
+                            case 2 -> map.putIfAbsent(uuid, player);
+                            case 3 -> map.compute(uuid, (key, current) -> current == null ? player : null);
+                            case 4 -> map.merge(uuid, player, (current, added) -> added);
+                            case 5 -> map.computeIfPresent(uuid, (key, current) -> player);
+                            case 6 -> map.values().removeIf(current -> current.getUniqueId().equals(uuid));
+                            default -> {
+                                final JadedSyncPlayer current = map.get(uuid);
+                                if(current != null) {
+                                    map.remove(uuid, current);
+                                }
+                            }
+                        }
+                    }
+                }
+                catch(final Throwable throwable) {
+                    failures.add(throwable);
+                }
+                finally {
+                    writers.countDown();
+                }
+            });
+        }
+
+        for(int thread = 0; thread < READERS; thread++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    final ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                    while(writers.getCount() > 0) {
+                        // A name written by another thread only ever leads to the player that owns it.
+                        final UUID uuid = uuids.get(random.nextInt(PLAYERS));
+                        final String name = name(uuid, random.nextInt(NAMES));
+                        final JadedSyncPlayer found = map.get(name.toUpperCase(Locale.ROOT));
+                        if(found != null) {
+                            assertEquals(uuid, found.getUniqueId());
+                            assertTrue(found.getName().equalsIgnoreCase(name));
+                        }
+
+                        // Changes to other players never lose a name that isn't changing.
+                        final JadedSyncPlayer player = stable.get(random.nextInt(STABLE));
+                        assertSame(player, map.get(player.getName()));
+                        assertTrue(map.size() >= STABLE);
+                    }
+                }
+                catch(final Throwable throwable) {
+                    failures.add(throwable);
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        assertEquals(List.of(), failures);
+
+        // Every live player is found by its current name, and by none of its old ones.
+        int live = STABLE;
+        for(final UUID uuid : uuids) {
+            final JadedSyncPlayer player = map.get(uuid);
+            if(player != null) {
+                live++;
+            }
+
+            for(int index = 0; index < NAMES; index++) {
+                final String name = name(uuid, index);
+                if(player != null && player.getName().equals(name)) {
+                    assertSame(player, map.get(name));
+                }
+                else {
+                    assertNull(map.get(name));
+                }
+            }
+        }
+
+        for(final JadedSyncPlayer player : stable) {
+            assertSame(player, map.get(player.getName()));
+        }
+
+        assertEquals(live, map.size());
+        assertEquals(live, map.values().size());
+        assertEquals(live, map.values().stream().count());
+    }
+
+    /**
+     * Creates a player that is not tied to the plugin.
+     * @param uuid UUID of the player.
+     * @param name Username of the player.
+     * @return The created player.
+     */
+    private static JadedSyncPlayer player(final UUID uuid, final String name) {
+        return new JadedSyncPlayer(null, Map.of("uuid", uuid.toString(), "name", name, "server", "test"));
+    }
+
+    /**
+     * Gets one of the usernames a player can use during the test.
+     * Names are unique to each player, so a stale index entry can't be hidden by another player taking the name.
+     * @param uuid UUID of the player.
+     * @param index Which of the player's names to get.
+     * @return The username.
+     */
+    private static String name(final UUID uuid, final int index) {
+        return uuid.toString().substring(0, 8) + "_" + index;
+    }
+}
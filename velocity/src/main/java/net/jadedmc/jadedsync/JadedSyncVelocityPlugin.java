@@ -25,6 +25,7 @@
 package net.jadedmc.jadedsync;
 
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
@@ -35,6 +36,7 @@ import dev.dejvokep.boostedyaml.settings.dumper.DumperSettings;
 import dev.dejvokep.boostedyaml.settings.general.GeneralSettings;
 import dev.dejvokep.boostedyaml.settings.loader.LoaderSettings;
 import dev.dejvokep.boostedyaml.settings.updater.UpdaterSettings;
+import net.jadedmc.jadedsync.commands.JadedSyncProxyCMD;
 import net.jadedmc.jadedsync.database.Redis;
 import net.jadedmc.jadedsync.listeners.DisconnectListener;
 import org.bstats.velocity.Metrics;
@@ -91,14 +93,27 @@ public class JadedSyncVelocityPlugin {
         // Register events.
         proxyServer.getEventManager().register(this, new DisconnectListener(this));
 
+        // Register commands.
+        proxyServer.getCommandManager().register(proxyServer.getCommandManager().metaBuilder("jadedsyncproxy").aliases("jsproxy").plugin(this).build(), new JadedSyncProxyCMD(this));
+
         // Enable bStats
         metricsFactory.make(this, 26851);
     }
 
+    @Subscribe
+    public void onProxyShutdown(ProxyShutdownEvent event) {
+        // Disconnect from redis.
+        redis.close();
+    }
+
     public YamlDocument getConfig() {
         return config;
     }
 
+    public Logger getLogger() {
+        return logger;
+    }
+
     public ProxyServer getProxyServer() {
         return proxyServer;
     }
@@ -0,0 +1,99 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.commands;
+
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.command.SimpleCommand;
+import net.jadedmc.jadedsync.JadedSyncVelocityPlugin;
+import net.jadedmc.jadedsync.database.RedisSubscriber;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.jetbrains.annotations.NotNull;
+import redis.clients.jedis.JedisPool;
+
+/**
+ * Runs the /jadedsyncproxy command, which displays information about JadedSync on the proxy.
+ */
+public class JadedSyncProxyCMD implements SimpleCommand {
+    private final JadedSyncVelocityPlugin plugin;
+
+    /**
+     * Creates the command.
+     * @param plugin Instance of the plugin.
+     */
+    public JadedSyncProxyCMD(@NotNull final JadedSyncVelocityPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Runs when the command is executed.
+     * @param invocation Command invocation.
+     */
+    @Override
+    public void execute(@NotNull final Invocation invocation) {
+        final String[] args = invocation.arguments();
+
+        // Process sub commands.
+        if(args.length > 0 && args[0].equalsIgnoreCase("stats")) {
+            statsCMD(invocation.source());
+            return;
+        }
+
+        chat(invocation.source(), "<red><bold>Usage</bold></red> <dark_gray>»</dark_gray> <red>/jadedsyncproxy stats</red>");
+    }
+
+    /**
+     * Only allow admins to use the command.
+     * @param invocation Command invocation.
+     * @return Whether the source can use the command.
+     */
+    @Override
+    public boolean hasPermission(@NotNull final Invocation invocation) {
+        return invocation.source().hasPermission("jadedsync.admin");
+    }
+
+    /**
+     * Displays statistics about the Redis connection pool and pub/sub subscriber.
+     * @param source Command Source.
+     */
+    private void statsCMD(@NotNull final CommandSource source) {
+        final JedisPool pool = plugin.getRedis().jedisPool();
+        final RedisSubscriber subscriber = plugin.getRedis().getSubscriber();
+
+        chat(source, "<green><bold>JadedSync Proxy Stats</bold>");
+        chat(source, "  <green>Pool: <white>" + pool.getNumActive() + " active<dark_gray>, <white>" + pool.getNumIdle() + " idle<dark_gray>, <white>" + pool.getNumWaiters() + " waiting");
+        chat(source, "  <green>Borrow Time: <white>" + plugin.getRedis().getBorrowTime().getSummary());
+        chat(source, "  <green>Pub/Sub: <white>" + (subscriber.isConnected() ? "Connected" : "Disconnected") + " <green>Reconnects: <white>" + subscriber.getReconnects());
+        chat(source, "  <green>Last Outage: <white>" + subscriber.getLastDowntime() + "ms<dark_gray>, <white>" + (subscriber.getLastMissed() < 0 ? "missed messages not counted" : "up to " + subscriber.getLastMissed() + " messages lost"));
+    }
+
+    /**
+     * Sends a MiniMessage message to a command source.
+     * @param source Command Source.
+     * @param message Message to send.
+     */
+    private void chat(@NotNull final CommandSource source, @NotNull final String message) {
+        source.sendMessage(MiniMessage.miniMessage().deserialize(message));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.database;
+
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Formats that records, such as instances, can be stored in Redis with.
+ * Values are always read based on their contents, so servers using different formats can share the same Redis.
+ */
+public enum RecordFormat {
+    /**
+     * Json text, as produced by Document#toJson. Readable by every version of JadedSync.
+     */
+    JSON,
+
+    /**
+     * Binary BSON, prefixed with a marker byte. Smaller and faster to encode and decode than Json.
+     */
+    BSON;
+
+    // Json text never starts with a null byte, so it is used to mark binary values.
+    private static final byte BSON_MARKER = 0x00;
+    private static final DocumentCodec CODEC = new DocumentCodec();
+
+    /**
+     * Encodes a document in this format.
+     * @param document Document to encode.
+     * @return Encoded document.
+     */
+    public byte[] encode(@NotNull final Document document) {
+        if(this == JSON) {
+            return document.toJson().getBytes(StandardCharsets.UTF_8);
+        }
+
+        final BasicOutputBuffer buffer = new BasicOutputBuffer();
+        buffer.writeByte(BSON_MARKER);
+
+        try(BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            CODEC.encode(writer, document, EncoderContext.builder().build());
+        }
+
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Decodes a document, detecting the format it was stored with.
+     * @param data Encoded document.
+     * @return Decoded document.
+     */
+    public static Document decode(final byte @NotNull [] data) {
+        if(data.length == 0 || data[0] != BSON_MARKER) {
+            return Document.parse(new String(data, StandardCharsets.UTF_8));
+        }
+
+        try(BsonBinaryReader reader = new BsonBinaryReader(ByteBuffer.wrap(data, 1, data.length - 1).slice())) {
+            return CODEC.decode(reader, DecoderContext.builder().build());
+        }
+    }
+
+    /**
+     * Gets a format from its name in the config, defaulting to Json.
+     * @param name Name of the format.
+     * @return Matching format.
+     */
+    public static RecordFormat fromName(final String name) {
+        if(name == null) {
+            return JSON;
+        }
+
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        }
+        catch(final IllegalArgumentException exception) {
+            return JSON;
+        }
+    }
+}
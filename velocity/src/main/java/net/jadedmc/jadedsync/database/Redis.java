@@ -26,13 +26,27 @@ package net.jadedmc.jadedsync.database;
 
 import com.velocitypowered.api.proxy.server.ServerInfo;
 import net.jadedmc.jadedsync.JadedSyncVelocityPlugin;
+import net.jadedmc.jadedsync.messaging.Message;
+import net.jadedmc.jadedsync.messaging.MessageChannels;
+import net.jadedmc.jadedsync.messaging.MessageCodec;
+import net.jadedmc.jadedsync.messaging.MessageType;
+import net.jadedmc.jadedsync.utils.metrics.LatencyHistogram;
 import org.bson.Document;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
-import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.exceptions.JedisDataException;
 
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * Manages the connection process to Redis.
@@ -40,6 +54,9 @@ import java.net.InetSocketAddress;
 public class Redis {
     private final JadedSyncVelocityPlugin plugin;
     private final JedisPool jedisPool;
+    private final LatencyHistogram borrowTime = new LatencyHistogram();
+    private final boolean countMessages;
+    private RedisSubscriber subscriber;
 
     /**
      * Connects to Redis.
@@ -47,9 +64,15 @@ public class Redis {
      */
     public Redis(final JadedSyncVelocityPlugin plugin) {
         this.plugin = plugin;
+        this.countMessages = plugin.getConfig().getBoolean("Redis.count-missed-messages", false);
 
+        // Bound the pool, so a lag spike can't open more connections than Redis allows.
         JedisPoolConfig jedisPoolConfig = new JedisPoolConfig();
-        jedisPoolConfig.setMaxTotal(Integer.MAX_VALUE);
+        jedisPoolConfig.setMaxTotal(plugin.getConfig().getInt("Redis.pool.max-total", 16));
+        jedisPoolConfig.setMaxIdle(plugin.getConfig().getInt("Redis.pool.max-idle", 8));
+        jedisPoolConfig.setMinIdle(plugin.getConfig().getInt("Redis.pool.min-idle", 1));
+        jedisPoolConfig.setBlockWhenExhausted(true);
+        jedisPoolConfig.setMaxWait(Duration.ofMillis(plugin.getConfig().getLong("Redis.pool.max-wait", 2000L)));
 
         String host = plugin.getConfig().getString("Redis.host");
         int port = plugin.getConfig().getInt("Redis.port");
@@ -65,73 +88,292 @@ public class Redis {
         return jedisPool;
     }
 
-    public void publish(String channel,  String message) {
-        try(Jedis publisher = jedisPool.getResource()) {
+    /**
+     * Borrows a connection from the pool, recording how long it had to wait for one.
+     * @return Connection to Redis. Must be closed to return it to the pool.
+     */
+    public Jedis getResource() {
+        final long start = System.nanoTime();
+
+        try {
+            return jedisPool.getResource();
+        }
+        finally {
+            borrowTime.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Get how long it took to borrow connections from the pool.
+     * @return Borrow wait time histogram.
+     */
+    public LatencyHistogram getBorrowTime() {
+        return borrowTime;
+    }
+
+    /**
+     * Publishes a message, encoded in the binary message format.
+     * @param channel Channel to publish the message in.
+     * @param message Message to publish.
+     */
+    public void publish(String channel, Message message) {
+        final byte[] data = MessageCodec.encode(message);
+
+        try(Jedis publisher = getResource()) {
+            if(!isCounted(message.getType())) {
+                publisher.publish(channel.getBytes(StandardCharsets.UTF_8), data);
+                return;
+            }
+
+            // Count the publish in the channel, so subscribers can tell how many messages they missed while disconnected.
+            final Pipeline pipeline = publisher.pipelined();
+            pipeline.incr(sequenceKey(channel));
+            pipeline.publish(channel.getBytes(StandardCharsets.UTF_8), data);
+            pipeline.sync();
+        }
+    }
+
+    /**
+     * Publishes a legacy space-delimited text message, such as "proxy register server".
+     * Text that is a known message type is converted to the binary message format, and anything else is published as-is.
+     * @param channel Channel to publish the message in.
+     * @param message Text of the message.
+     * @deprecated Use {@link #publish(String, Message)} instead.
+     */
+    @Deprecated
+    public void publish(String channel, String message) {
+        final Message decoded = MessageCodec.decode(message.getBytes(StandardCharsets.UTF_8));
+
+        if(decoded != null) {
+            publish(channel, decoded);
+            return;
+        }
+
+        try(Jedis publisher = getResource()) {
             publisher.publish(channel, message);
         }
     }
 
+    /**
+     * Checks if "Redis.count-missed-messages" is enabled, which counts publishes so missed messages can be estimated after reconnecting.
+     * Off by default, since counting adds a write to every publish.
+     * @return Whether publishes are counted.
+     */
+    public boolean isCountingMessages() {
+        return this.countMessages;
+    }
+
+    /**
+     * Checks if publishing a type of message increments its channel's publish sequence.
+     * Heartbeats are never counted, since they are the most frequent messages and carry their own sequence number.
+     * @param type Type of the message, or null if it is not known.
+     * @return Whether the message is counted.
+     */
+    public boolean isCounted(MessageType type) {
+        return this.countMessages && type != null && type != MessageType.HEARTBEAT;
+    }
+
+    /**
+     * Get the number of messages published through JadedSync so far, in each of a group of channels.
+     * @param channels Channels to check.
+     * @return Map of each channel to its current publish sequence.
+     */
+    public Map<String, Long> getPublishSequences(Collection<String> channels) {
+        final Map<String, Long> sequences = new HashMap<>();
+
+        if(channels.isEmpty()) {
+            return sequences;
+        }
+
+        final List<String> names = new ArrayList<>(channels);
+        try(Jedis jedis = getResource()) {
+            final List<String> values = jedis.mget(names.stream().map(Redis::sequenceKey).toArray(String[]::new));
+
+            for(int i = 0; i < names.size(); i++) {
+                sequences.put(names.get(i), values.get(i) == null ? 0 : Long.parseLong(values.get(i)));
+            }
+        }
+
+        return sequences;
+    }
+
+    /**
+     * Gets the key counting the messages published in a channel.
+     * Counted per channel, since each server only subscribes to some of them.
+     * @param channel Channel of the messages.
+     * @return Key of the channel's publish sequence.
+     */
+    private static String sequenceKey(String channel) {
+        return "jadedsync:pubsub:sequence:" + channel;
+    }
+
     public void set(String key, String value) {
-        try(Jedis jedis = jedisPool.getResource()) {
+        try(Jedis jedis = getResource()) {
             jedis.set(key, value);
         }
     }
 
+    public String get(String key) {
+        try(Jedis jedis = getResource()) {
+            return jedis.get(key);
+        }
+    }
+
     public void sadd(String key, String value) {
-        try(Jedis jedis = jedisPool.getResource()) {
+        try(Jedis jedis = getResource()) {
             jedis.sadd(key, value);
         }
     }
 
+    /**
+     * Removes a player's data and index entries from Redis, in one round trip.
+     * @param uuid UUID of the player, as a String.
+     * @param username Username of the player.
+     */
+    public void removePlayer(String uuid, String username) {
+        try(Jedis jedis = getResource()) {
+            final Pipeline pipeline = jedis.pipelined();
+            pipeline.del("jadedsync:players:" + uuid);
+            pipeline.srem("jadedsync:index:players", uuid);
+            pipeline.hdel("jadedsync:index:names", username.toLowerCase(Locale.ROOT));
+            pipeline.hdel("jadedsync:index:locations", uuid);
+            pipeline.sync();
+        }
+    }
+
     public void del(String key) {
-        try(Jedis jedis = jedisPool.getResource()) {
+        try(Jedis jedis = getResource()) {
             jedis.del(key);
         }
     }
 
+    /**
+     * Starts listening for messages addressed to the proxies.
+     * Also listens on the network channel, as older backends sent proxy messages there.
+     * The subscriber reconnects on its own if the connection to Redis drops.
+     */
     private void subscribe() {
-        new Thread("Redis Subscriber") {
-            @Override
-            public void run() {
-
-                try (Jedis jedis = jedisPool.getResource()) {
-                    jedis.subscribe(new JedisPubSub() {
-                        @Override
-                        public void onMessage(String channel, String msg) {
-                            String[] args = msg.split(" ");
-
-                            if(!args[0].equals("proxy")) {
-                                return;
-                            }
-
-                            switch(args[1].toLowerCase()) {
-                                case "register" -> {
-                                    final String serverName = args[2];
-
-                                    Document instance = Document.parse(jedis.get("jadedsync:servers:backend:" + serverName));
-                                    String name = instance.getString("serverName");
-                                    InetSocketAddress address = new InetSocketAddress(instance.getString("address"), instance.getInteger("port"));
-                                    ServerInfo server = new ServerInfo(name, address);
-                                    plugin.getProxyServer().registerServer(server);
-                                }
-
-                                case "remove" -> {
-                                    final String serverName = args[2];
-
-                                    Document instance = Document.parse(jedis.get("jadedsync:servers:backend:" + serverName));
-                                    String name = instance.getString("serverName");
-                                    InetSocketAddress address = new InetSocketAddress(instance.getString("address"), instance.getInteger("port"));
-                                    ServerInfo server = new ServerInfo(name, address);
-                                    plugin.getProxyServer().unregisterServer(server);
-                                }
-                            }
-                        }
-                    }, "jadedsync");
+        subscriber = new RedisSubscriber(this, plugin.getLogger(), this::onMessage, MessageChannels.PROXY, MessageChannels.NETWORK);
+        subscriber.start();
+    }
+
+    /**
+     * Get the subscriber listening for pub/sub messages.
+     * @return Redis subscriber.
+     */
+    public RedisSubscriber getSubscriber() {
+        return subscriber;
+    }
+
+    /**
+     * Processes a message received through pub/sub.
+     * @param channel Channel the message was sent in.
+     * @param data Message that was sent.
+     */
+    private void onMessage(String channel, byte[] data) {
+        final Message message = MessageCodec.decode(data);
+
+        if(message == null) {
+            return;
+        }
+
+        // The instance's record has already expired, so the registered server is found by name instead.
+        if(message.getType() == MessageType.EXPIRE) {
+            plugin.getProxyServer().getServer(message.getArg(0)).ifPresent(server -> plugin.getProxyServer().unregisterServer(server.getServerInfo()));
+            return;
+        }
+
+        // Heartbeats from servers the proxy does not know, such as ones unregistered after their record expired, register them again.
+        if(message.getType() == MessageType.HEARTBEAT) {
+            if(message.getPayload().length == 0) {
+                return;
+            }
+
+            final Document heartbeat = RecordFormat.decode(message.getPayload());
+            final String serverName = heartbeat.getString("serverName");
+
+            if(serverName == null || plugin.getProxyServer().getServer(serverName).isPresent()) {
+                return;
+            }
+
+            // Full heartbeats already contain the address, so Redis is only read for partial ones.
+            final ServerInfo server = heartbeat.getBoolean("full", false)
+                    ? new ServerInfo(serverName, new InetSocketAddress(heartbeat.getString("address"), heartbeat.getInteger("port")))
+                    : getServerInfo(serverName);
+
+            if(server != null) {
+                plugin.getProxyServer().registerServer(server);
+            }
+
+            return;
+        }
+
+        if(message.getType() != MessageType.PROXY) {
+            return;
+        }
+
+        switch(message.getArg(0).toLowerCase()) {
+            case "register" -> {
+                final ServerInfo server = getServerInfo(message.getArg(1));
+
+                if(server != null) {
+                    plugin.getProxyServer().registerServer(server);
                 }
-                catch (Exception exception) {
-                    exception.printStackTrace();
+            }
+
+            case "remove" -> {
+                final ServerInfo server = getServerInfo(message.getArg(1));
+
+                if(server != null) {
+                    plugin.getProxyServer().unregisterServer(server);
                 }
             }
-        }.start();
+        }
+    }
+
+    /**
+     * Builds the ServerInfo of a backend from its saved instance data.
+     * Uses a pooled connection, since the subscriber's connection can't run other commands.
+     * @param serverName Name of the backend.
+     * @return ServerInfo of the backend, or null if it is not saved.
+     */
+    private ServerInfo getServerInfo(String serverName) {
+        final String key = "jadedsync:servers:backend:" + serverName;
+
+        try(Jedis jedis = getResource()) {
+            // Instances are saved as a hash, so only the fields needed are read.
+            final List<String> fields = jedis.hmget(key, "serverName", "address", "port");
+
+            // Skip records that are missing or were only partly written.
+            if(fields.contains(null)) {
+                return null;
+            }
+
+            return new ServerInfo(fields.get(0), new InetSocketAddress(fields.get(1), Integer.parseInt(fields.get(2))));
+        }
+        catch(final JedisDataException exception) {
+            // Wrong type, so the instance was saved as a single value by an older version.
+            final byte[] data;
+            try(Jedis jedis = getResource()) {
+                data = jedis.get(key.getBytes(StandardCharsets.UTF_8));
+            }
+
+            if(data == null) {
+                return null;
+            }
+
+            Document instance = RecordFormat.decode(data);
+            String name = instance.getString("serverName");
+            InetSocketAddress address = new InetSocketAddress(instance.getString("address"), instance.getInteger("port"));
+            return new ServerInfo(name, address);
+        }
+    }
+
+    /**
+     * Stops listening for messages and closes the connection pool.
+     */
+    public void close() {
+        subscriber.stop();
+        jedisPool.close();
     }
 }
\ No newline at end of file
@@ -51,6 +51,6 @@ public class DisconnectListener {
     @Subscribe
     public void onDisconnect(@NotNull final DisconnectEvent event) {
         final Player player = event.getPlayer();
-        plugin.getRedis().del("jadedsync:players:" + player.getUniqueId().toString());
+        plugin.getRedis().removePlayer(player.getUniqueId().toString(), player.getUsername());
     }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.messaging;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Names of the pub/sub channels messages can be addressed to.
+ * Servers only subscribe to the channels they can act on, so targeted messages are not parsed network-wide.
+ */
+public class MessageChannels {
+    /**
+     * Received by every server in the network.
+     */
+    public static final String NETWORK = "jadedsync";
+
+    /**
+     * Received by every proxy.
+     */
+    public static final String PROXY = "jadedsync:proxy";
+
+    /**
+     * Gets the channel received by a single server.
+     * @param server Name of the server.
+     * @return Channel of the server.
+     */
+    public static String server(@NotNull final String server) {
+        return "jadedsync:server:" + server;
+    }
+
+    /**
+     * Gets the channel received by every server with a given tag.
+     * @param tag Tag of the servers.
+     * @return Channel of the tag.
+     */
+    public static String tag(@NotNull final String tag) {
+        return "jadedsync:tag:" + tag;
+    }
+}
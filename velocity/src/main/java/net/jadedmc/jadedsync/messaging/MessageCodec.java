@@ -0,0 +1,220 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.messaging;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Converts messages to and from the binary format sent through pub/sub.
+ * <p>
+ * Version 1 layout:
+ * <pre>
+ * byte    version (1)
+ * byte    message type code
+ * int     player count, followed by 16 bytes per player UUID
+ * byte    argument count (at most 255), followed by an int length and UTF-8 bytes per argument
+ * int     payload length, followed by the payload bytes (only written when there is a payload)
+ * </pre>
+ * The payload is last, so servers that do not read it can still decode the rest of the message.
+ * Anything starting with a printable character is treated as a legacy space-delimited text message,
+ * so servers still running older versions can be understood while the network updates.
+ */
+public class MessageCodec {
+    public static final byte VERSION = 1;
+    public static final int MAX_ARGS = 255;
+
+    /**
+     * Encodes a message.
+     * @param message Message to encode.
+     * @return Encoded message.
+     * @throws IllegalArgumentException If the message has more than 255 arguments.
+     */
+    public static byte[] encode(@NotNull final Message message) {
+        if(message.getArgs().size() > MAX_ARGS) {
+            throw new IllegalArgumentException("Messages can have at most " + MAX_ARGS + " arguments, got " + message.getArgs().size() + ".");
+        }
+
+        final List<byte[]> args = new ArrayList<>(message.getArgs().size());
+        int size = 2 + 4 + message.getPlayers().size() * 16 + 1;
+
+        for(final String arg : message.getArgs()) {
+            final byte[] bytes = arg.getBytes(StandardCharsets.UTF_8);
+            args.add(bytes);
+            size += 4 + bytes.length;
+        }
+
+        final byte[] payload = message.getPayload();
+        if(payload.length > 0) {
+            size += 4 + payload.length;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(VERSION);
+        buffer.put(message.getType().getCode());
+
+        buffer.putInt(message.getPlayers().size());
+        for(final UUID uuid : message.getPlayers()) {
+            buffer.putLong(uuid.getMostSignificantBits());
+            buffer.putLong(uuid.getLeastSignificantBits());
+        }
+
+        buffer.put((byte) args.size());
+        for(final byte[] arg : args) {
+            buffer.putInt(arg.length);
+            buffer.put(arg);
+        }
+
+        if(payload.length > 0) {
+            buffer.putInt(payload.length);
+            buffer.put(payload);
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a message.
+     * @param data Data received through pub/sub.
+     * @return Decoded message, null if it is malformed or of an unknown type or version.
+     */
+    public static Message decode(final byte @NotNull [] data) {
+        if(data.length == 0) {
+            return null;
+        }
+
+        // Older versions send plain text.
+        if(data[0] >= 0x20) {
+            return decodeLegacy(new String(data, StandardCharsets.UTF_8));
+        }
+
+        if(data[0] != VERSION) {
+            return null;
+        }
+
+        try {
+            final ByteBuffer buffer = ByteBuffer.wrap(data);
+            buffer.get();
+
+            final MessageType type = MessageType.fromCode(buffer.get());
+            if(type == null) {
+                return null;
+            }
+
+            final int playerCount = buffer.getInt();
+            if(playerCount < 0 || playerCount > buffer.remaining() / 16) {
+                return null;
+            }
+
+            final List<UUID> players = new ArrayList<>(playerCount);
+            for(int i = 0; i < playerCount; i++) {
+                players.add(new UUID(buffer.getLong(), buffer.getLong()));
+            }
+
+            final int argCount = buffer.get() & 0xFF;
+            final List<String> args = new ArrayList<>(argCount);
+            for(int i = 0; i < argCount; i++) {
+                final int length = buffer.getInt();
+                if(length < 0 || length > buffer.remaining()) {
+                    return null;
+                }
+
+                args.add(new String(data, buffer.position(), length, StandardCharsets.UTF_8));
+                buffer.position(buffer.position() + length);
+            }
+
+            // Messages without a payload end after their arguments.
+            byte[] payload = new byte[0];
+            if(buffer.hasRemaining()) {
+                final int length = buffer.getInt();
+                if(length < 0 || length > buffer.remaining()) {
+                    return null;
+                }
+
+                payload = new byte[length];
+                buffer.get(payload);
+            }
+
+            return new Message(type, players, args, payload);
+        }
+        catch(final BufferUnderflowException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the type of a binary message, without decoding the rest of it.
+     * @param data Data received through pub/sub.
+     * @return Type of the message, null if it is not a binary message or its type is unknown.
+     */
+    public static MessageType getType(final byte @NotNull [] data) {
+        if(data.length < 2 || data[0] != VERSION) {
+            return null;
+        }
+
+        return MessageType.fromCode(data[1]);
+    }
+
+    /**
+     * Decodes a legacy space-delimited text message, such as "connect uuid,uuid server".
+     * @param text Text that was received.
+     * @return Decoded message, null if the message type is unknown.
+     */
+    private static Message decodeLegacy(@NotNull final String text) {
+        final String[] parts = text.split(" ", 3);
+        final MessageType type = MessageType.fromId(parts[0]);
+
+        if(type == null) {
+            return null;
+        }
+
+        final List<String> args = Arrays.asList(parts).subList(1, parts.length);
+
+        // Chat and connect messages started with a comma separated list of recipients.
+        if((type == MessageType.CHAT || type == MessageType.CONNECT) && !args.isEmpty()) {
+            final List<UUID> players = new ArrayList<>();
+
+            try {
+                for(final String uuid : args.get(0).split(",")) {
+                    players.add(UUID.fromString(uuid));
+                }
+            }
+            catch(final IllegalArgumentException exception) {
+                return null;
+            }
+
+            return new Message(type, players, args.subList(1, args.size()));
+        }
+
+        return new Message(type, List.of(), args);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * This file is part of JadedSync, licensed under the MIT License.
+ *
+ *  Copyright (c) JadedMC
+ *  Copyright (c) contributors
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in all
+ *  copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ *  SOFTWARE.
+ */
+package net.jadedmc.jadedsync.messaging;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Represents the different types of messages sent through Redis pub/sub.
+ */
+public enum MessageType {
+    /**
+     * Sends a chat message to a group of players.
+     */
+    CHAT("message", (byte) 1),
+
+    /**
+     * Sends a group of players to another server.
+     */
+    CONNECT("connect", (byte) 2),
+
+    /**
+     * Carries a message for an integration.
+     */
+    INTEGRATION("integration", (byte) 3),
+
+    /**
+     * Changes the status of an instance.
+     */
+    INSTANCE("instance", (byte) 4),
+
+    /**
+     * Tells the proxies to register or remove a server.
+     */
+    PROXY("proxy", (byte) 5),
+
+    /**
+     * Tells servers that a group of players were saved, so cached copies of them are out of date.
+     */
+    INVALIDATE("invalidate", (byte) 6),
+
+    /**
+     * Carries the latest record of an instance, sent with every heartbeat.
+     */
+    HEARTBEAT("heartbeat", (byte) 7),
+
+    /**
+     * Tells every server and proxy that an instance stopped sending heartbeats, and has been removed.
+     */
+    EXPIRE("expire", (byte) 8);
+
+    private final String id;
+    private final byte code;
+
+    /**
+     * Creates the message type.
+     * @param id ID used at the start of legacy text messages.
+     * @param code Byte identifying the type in binary messages. Must never change once released.
+     */
+    MessageType(@NotNull final String id, final byte code) {
+        this.id = id;
+        this.code = code;
+    }
+
+    /**
+     * Gets the byte identifying the message type in binary messages.
+     * @return Message type code.
+     */
+    public byte getCode() {
+        return this.code;
+    }
+
+    /**
+     * Gets the ID of the message type, as used at the start of legacy text messages.
+     * @return Message type ID.
+     */
+    public String getId() {
+        return this.id;
+    }
+
+    /**
+     * Gets a message type from its ID.
+     * @param id ID of the message type.
+     * @return Matching message type, null if there is none.
+     */
+    public static MessageType fromId(@NotNull final String id) {
+        for(final MessageType type : values()) {
+            if(type.id.equals(id)) {
+                return type;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets a message type from its binary code.
+     * @param code Code of the message type.
+     * @return Matching message type, null if there is none.
+     */
+    public static MessageType fromCode(final byte code) {
+        for(final MessageType type : values()) {
+            if(type.code == code) {
+                return type;
+            }
+        }
+
+        return null;
+    }
+}